@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+
+/**
+ * A {@link CompressedBitmap} of the rows holding each distinct value of a dictionary encoded column.
+ * <br/><br/>
+ * Meant for columns with few distinct values, such as enums and booleans: the filters are evaluated
+ * once per distinct value, and the result is the OR of the bitmaps of the matching values,
+ * so filtering doesn't depend on the number of rows.
+ * <br/><br/>
+ * Inserted, removed and updated rows are applied to the bitmaps in place.  The index is no longer
+ * usable once the column has more than {@link #MAX_VALUES} distinct values, see {@link #isIndexable(ColumnVector)}.
+ *
+ * @author JHS
+ */
+final class BitmapIndex
+{
+    /** Columns with more distinct values than this aren't indexed */
+    static final int MAX_VALUES = 256;
+
+    private final ColumnVector.DictionaryVector vector;
+    private CompressedBitmap[] bitmaps;
+
+
+    private BitmapIndex(ColumnVector.DictionaryVector vector, CompressedBitmap[] bitmaps)
+    {
+        this.vector = vector;
+        this.bitmaps = bitmaps;
+    }
+
+    /**
+     * @return If the column has few enough distinct values to be indexed
+     */
+    static boolean isIndexable(ColumnVector vector)
+    {
+        return vector instanceof ColumnVector.DictionaryVector
+                && ((ColumnVector.DictionaryVector)vector).dictionarySize <= MAX_VALUES;
+    }
+
+    static BitmapIndex build(ColumnVector.DictionaryVector vector)
+    {
+        final CompressedBitmap[] bitmaps = new CompressedBitmap[vector.dictionarySize];
+        for (int c=0; c < bitmaps.length; c++)
+        {
+            bitmaps[c] = new CompressedBitmap();
+        }
+
+        final int[] codes = vector.codes;
+        for (int i=0; i < vector.size(); i++)
+        {
+            bitmaps[codes[i]].append(i);
+        }
+
+        for (CompressedBitmap bitmap : bitmaps)
+        {
+            bitmap.runOptimize();
+        }
+        return new BitmapIndex(vector, bitmaps);
+    }
+
+    /**
+     * Add the rows that were inserted into the column
+     *
+     * @param from Index of the first inserted row
+     * @param count Number of rows inserted; they must already be in the vector
+     */
+    void rowsInserted(int from, int count)
+    {
+        if (from + count < vector.size())
+        {
+            for (CompressedBitmap bitmap : bitmaps)
+            {
+                bitmap.insertRows(from, count);
+            }
+        }
+        addEntries(from, from + count);
+    }
+
+    /**
+     * Drop the rows that are being removed from the column
+     *
+     * @param from Index of the first removed row
+     * @param count Number of rows removed
+     */
+    void rowsRemoved(int from, int count)
+    {
+        for (CompressedBitmap bitmap : bitmaps)
+        {
+            bitmap.removeRows(from, count);
+        }
+    }
+
+    /**
+     * Drop the rows [from,to) from the bitmaps of their values; their values must still be in the vector.
+     * Used with {@link #addEntries(int, int)} around an update of the rows' values.
+     */
+    void removeEntries(int from, int to)
+    {
+        for (int i=from; i < to; i++)
+        {
+            bitmaps[vector.codes[i]].remove(i);
+        }
+    }
+
+    /**
+     * Add the rows [from,to) to the bitmaps of their values
+     */
+    void addEntries(int from, int to)
+    {
+        if (bitmaps.length < vector.dictionarySize)
+        {
+            final int n = bitmaps.length;
+            bitmaps = Arrays.copyOf(bitmaps, vector.dictionarySize);
+            for (int c=n; c < bitmaps.length; c++)
+            {
+                bitmaps[c] = new CompressedBitmap();
+            }
+        }
+        for (int i=from; i < to; i++)
+        {
+            bitmaps[vector.codes[i]].add(i);
+        }
+    }
+
+    /**
+     * @return The rows matching the filters; may be one of the index's bitmaps, so it is only valid until the rows change
+     */
+    CompressedBitmap lookup(Collection<? extends IFilterOperator<?>> filters)
+    {
+        final boolean[] matches = vector.matchingCodes(filters);
+        final List<CompressedBitmap> matched = new ArrayList<>();
+        for (int c=0; c < matches.length; c++)
+        {
+            if (matches[c]) matched.add(bitmaps[c]);
+        }
+        return matched.isEmpty() ? new CompressedBitmap() : CompressedBitmap.or(matched);
+    }
+}
@@ -23,40 +23,44 @@
  * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
  * POSSIBILITY OF SUCH DAMAGE.
  */
-package org.google.jhsheets.filtered.operators;
+package org.google.jhsheets.filtered.engine;
 
-import java.util.EnumSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
 
 /**
+ * The filters applied to a single column, along with what they were compiled into.
  *
  * @author JHS
  */
-public class EnumOperator<T> implements IFilterOperator<T>
+final class ColumnFilter<S>
 {
-	public static final EnumSet<Type> VALID_TYPES = EnumSet.of(
-			Type.NONE
-			, Type.EQUALS
-			);
-	
-    private final IFilterOperator.Type type;
-    private final T value;
-    
-    public EnumOperator(IFilterOperator.Type type, T value)
-    {
-        this.type = type;
-        this.value = value;
-    }
-    
-    @Override
-    public IFilterOperator.Type getType()
+    final Object column;
+    final ValueExtractor<? super S> extractor;
+    final List<IFilterOperator<?>> filters;
+    final Predicate<S> predicate;
+
+
+    private ColumnFilter(Object column, ValueExtractor<? super S> extractor, List<IFilterOperator<?>> filters, Predicate<S> predicate)
     {
-        return type;
+        this.column = column;
+        this.extractor = extractor;
+        this.filters = filters;
+        this.predicate = predicate;
     }
-    
-    @Override
-    public T getValue()
+
+    /**
+     * @return The compiled column filter, or null if the filters don't filter anything
+     */
+    static <S> ColumnFilter<S> compile(Object column, ValueExtractor<? super S> extractor, Collection<? extends IFilterOperator<?>> filters)
     {
-        return value;
+        final List<IFilterOperator<?>> copy = Collections.unmodifiableList(new ArrayList<IFilterOperator<?>>(filters));
+        final Predicate<S> p = FilterCompiler.compile(copy, extractor);
+        return p == null ? null : new ColumnFilter<S>(column, extractor, copy, p);
     }
-    
 }
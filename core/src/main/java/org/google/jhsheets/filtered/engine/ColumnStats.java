@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+/**
+ * How selective a column's filters are, and how much they cost to evaluate, 
+ * as measured by the evaluations of the column so far.
+ * <br/><br/>
+ * The measurements are averaged with more weight on the recent ones, so the
+ * statistics follow the column as its filters and the rows change.
+ *
+ * @author JHS
+ */
+final class ColumnStats
+{
+    /** Weight of the latest measurement */
+    private static final double WEIGHT = 0.3;
+
+    /** Lowest fraction of rows assumed to be rejected, so filters rejecting nothing still rank by cost */
+    private static final double MIN_REJECTED = 0.001;
+
+    /** Fraction of the evaluated rows that matched */
+    private double matchRate;
+    /** Nanoseconds spent per evaluated row */
+    private double cost;
+    private boolean measured;
+
+
+    /**
+     * @param rows Number of rows evaluated
+     * @param matched Number of those rows that matched the filters
+     * @param nanos Time the evaluation took
+     */
+    void record(int rows, int matched, long nanos)
+    {
+        if (rows <= 0)
+        {
+            return;
+        }
+        final double rate = (double)matched / rows;
+        final double rowCost = (double)nanos / rows;
+        if (measured == false)
+        {
+            matchRate = rate;
+            cost = rowCost;
+            measured = true;
+        }
+        else
+        {
+            matchRate += (rate - matchRate) * WEIGHT;
+            cost += (rowCost - cost) * WEIGHT;
+        }
+    }
+
+    /**
+     * Columns with a lower rank should be evaluated first: their filters reject the most rows 
+     * for the time they take.  Filters that haven't been measured yet rank first, 
+     * so they're measured against every row.
+     *
+     * @return The cost of evaluating a row, per row rejected
+     */
+    double rank()
+    {
+        return measured ? cost / Math.max(1 - matchRate, MIN_REJECTED) : 0;
+    }
+}
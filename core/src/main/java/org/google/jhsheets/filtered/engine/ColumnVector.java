@@ -0,0 +1,649 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+import org.google.jhsheets.filtered.operators.DateOperator;
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+
+/**
+ * The values of a single column, materialized into a contiguous array.
+ * <br/><br/>
+ * Numeric columns are stored as int[], long[] or double[] arrays, dates as their epoch
+ * milliseconds in a long[], and everything else (strings, enums, booleans...) is
+ * dictionary encoded: each distinct value is stored once, and the rows store an int code.
+ * Filters are then evaluated as tight scans over the arrays, producing a {@link BitSet}
+ * of the matching rows, instead of fetching each value from the row objects.
+ * <br/><br/>
+ * Inserted, removed and updated rows are applied to the vector in place, with
+ * {@link #insert(int, List, ValueExtractor)}, {@link #remove(int, int)} and
+ * {@link #update(int, List, ValueExtractor)}.  The arrays are allocated with spare room, like an
+ * {@link java.util.ArrayList}, so only the values after a change are moved, and only the changed rows are read.
+ *
+ * @author JHS
+ */
+abstract class ColumnVector
+{
+    /** Number of rows; the arrays may have room for more */
+    int size;
+
+    /**
+     * Materialize a column's values
+     *
+     * @param rows The rows to read the values from
+     * @param extractor Fetches the column's value from a row
+     * @param filters The column's filters, used to determine how to store object values
+     */
+    static <S> ColumnVector materialize(List<? extends S> rows, ValueExtractor<? super S> extractor, Collection<? extends IFilterOperator<?>> filters)
+    {
+        final int n = rows.size();
+        switch (extractor.getKind())
+        {
+            case INT:
+            {
+                final int[] values = new int[n];
+                for (int i=0; i < n; i++) values[i] = extractor.applyAsInt(rows.get(i));
+                return new IntVector(values, n);
+            }
+            case LONG:
+            {
+                final long[] values = new long[n];
+                for (int i=0; i < n; i++) values[i] = extractor.applyAsLong(rows.get(i));
+                return new LongVector(values, null, n);
+            }
+            case DOUBLE:
+            {
+                final double[] values = new double[n];
+                for (int i=0; i < n; i++) values[i] = extractor.applyAsDouble(rows.get(i));
+                return new DoubleVector(values, n);
+            }
+            default:
+                break;
+        }
+
+        if (isDateColumn(filters))
+        {
+            final long[] values = new long[n];
+            final BitSet nulls = new BitSet();
+            for (int i=0; i < n; i++)
+            {
+                final Object value = extractor.apply(rows.get(i));
+                if (value == null)
+                {
+                    nulls.set(i);
+                }
+                else
+                {
+                    values[i] = FilterCompiler.toEpochMillis(value);
+                }
+            }
+            return new LongVector(values, nulls, n);
+        }
+
+        final int[] codes = new int[n];
+        final Map<Object, Integer> lookup = new HashMap<>();
+        for (int i=0; i < n; i++)
+        {
+            final Object value = extractor.apply(rows.get(i));
+            Integer code = lookup.get(value);
+            if (code == null)
+            {
+                code = lookup.size();
+                lookup.put(value, code);
+            }
+            codes[i] = code;
+        }
+        final Object[] dictionary = new Object[lookup.size()];
+        for (Map.Entry<Object, Integer> e : lookup.entrySet())
+        {
+            dictionary[e.getValue()] = e.getKey();
+        }
+        return new DictionaryVector(codes, dictionary, n);
+    }
+
+    private static boolean isDateColumn(Collection<? extends IFilterOperator<?>> filters)
+    {
+        for (IFilterOperator<?> filter : filters)
+        {
+            if (filter instanceof DateOperator) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of rows
+     */
+    final int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return The rows matching the filters
+     */
+    final BitSet scan(Collection<? extends IFilterOperator<?>> filters)
+    {
+        return scan(filters, null);
+    }
+
+    /**
+     * @param pool Pool to scan chunks of the rows on in parallel, or null to scan them on the calling thread
+     * @return The rows matching the filters
+     */
+    abstract BitSet scan(Collection<? extends IFilterOperator<?>> filters, ForkJoinPool pool);
+
+    /**
+     * Clear the rows that don't match the filters; only the rows already set are evaluated
+     */
+    abstract void refine(Collection<? extends IFilterOperator<?>> filters, BitSet rows);
+
+    /**
+     * Add the values of rows that were inserted into the source list
+     *
+     * @param from Index of the first inserted row
+     * @param added The inserted rows
+     * @param extractor Fetches the column's value from a row
+     */
+    abstract <S> void insert(int from, List<? extends S> added, ValueExtractor<? super S> extractor);
+
+    /**
+     * Drop the values of rows that were removed from the source list
+     *
+     * @param from Index of the first removed row
+     * @param count Number of rows removed
+     */
+    abstract void remove(int from, int count);
+
+    /**
+     * Re-read the values of rows that were updated in the source list
+     *
+     * @param from Index of the first updated row
+     * @param updated The updated rows
+     */
+    abstract <S> void update(int from, List<? extends S> updated, ValueExtractor<? super S> extractor);
+
+    /**
+     * Make room for count elements at the index, moving the elements after it up
+     *
+     * @param array The array holding the elements
+     * @param length Number of elements in the array
+     * @return The array, or a larger copy of it if it didn't have room for the elements
+     */
+    static Object insertGap(Object array, int length, int from, int count)
+    {
+        Object ret = array;
+        final int capacity = Array.getLength(array);
+        if (length + count > capacity)
+        {
+            ret = Array.newInstance(array.getClass().getComponentType(), Math.max(length + count, capacity + (capacity >> 1)));
+            System.arraycopy(array, 0, ret, 0, from);
+        }
+        System.arraycopy(array, from, ret, from + count, length - from);
+        return ret;
+    }
+
+    /**
+     * Drop the count elements at the index, moving the elements after them down
+     *
+     * @param array The array holding the elements
+     * @param length Number of elements in the array
+     */
+    static void removeGap(Object array, int length, int from, int count)
+    {
+        System.arraycopy(array, from + count, array, from, length - from - count);
+    }
+
+    /**
+     * @return A copy of the bits, without the count bits at the index
+     */
+    static BitSet removeBits(BitSet bits, int from, int count)
+    {
+        final BitSet ret = bits.get(0, from);
+        for (int i = bits.nextSetBit(from + count); i >= 0; i = bits.nextSetBit(i + 1))
+        {
+            ret.set(i - count);
+        }
+        return ret;
+    }
+
+    /**
+     * @return A copy of the bits, with the bits at and after the index moved up by count
+     */
+    static BitSet insertBits(BitSet bits, int from, int count)
+    {
+        final BitSet ret = bits.get(0, from);
+        for (int i = bits.nextSetBit(from); i >= 0; i = bits.nextSetBit(i + 1))
+        {
+            ret.set(i + count);
+        }
+        return ret;
+    }
+
+    /**
+     * @return BitSet with the first n bits set
+     */
+    static BitSet all(int n)
+    {
+        final BitSet bits = new BitSet(n);
+        bits.set(0, n);
+        return bits;
+    }
+
+
+    static final class IntVector extends ColumnVector
+    {
+        int[] values;
+
+        IntVector(int[] values, int size)
+        {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        BitSet scan(Collection<? extends IFilterOperator<?>> filters, ForkJoinPool pool)
+        {
+            final IntPredicate p = FilterCompiler.compileInt(filters);
+            if (p == null) return all(size);
+            final int[] v = values;
+            return new ParallelScan()
+            {
+                @Override
+                void scan(long[] words, int from, int to)
+                {
+                    for (int i=from; i < to; i++)
+                    {
+                        if (p.test(v[i])) words[i >>> 6] |= 1L << i;
+                    }
+                }
+            }.run(size, pool);
+        }
+
+        @Override
+        void refine(Collection<? extends IFilterOperator<?>> filters, BitSet rows)
+        {
+            final IntPredicate p = FilterCompiler.compileInt(filters);
+            if (p == null) return;
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1))
+            {
+                if (p.test(values[i]) == false) rows.clear(i);
+            }
+        }
+
+        @Override
+        <S> void insert(int from, List<? extends S> added, ValueExtractor<? super S> extractor)
+        {
+            values = (int[])insertGap(values, size, from, added.size());
+            size += added.size();
+            update(from, added, extractor);
+        }
+
+        @Override
+        void remove(int from, int count)
+        {
+            removeGap(values, size, from, count);
+            size -= count;
+        }
+
+        @Override
+        <S> void update(int from, List<? extends S> updated, ValueExtractor<? super S> extractor)
+        {
+            for (int i=0; i < updated.size(); i++)
+            {
+                values[from + i] = extractor.applyAsInt(updated.get(i));
+            }
+        }
+    }
+
+    static final class LongVector extends ColumnVector
+    {
+        long[] values;
+        /** Rows with a null value, or null if the values cannot be null */
+        BitSet nulls;
+
+        LongVector(long[] values, BitSet nulls, int size)
+        {
+            this.values = values;
+            this.nulls = nulls == null || nulls.isEmpty() ? null : nulls;
+            this.size = size;
+        }
+
+        @Override
+        BitSet scan(Collection<? extends IFilterOperator<?>> filters, ForkJoinPool pool)
+        {
+            final LongPredicate p = FilterCompiler.compileLong(filters);
+            if (p == null) return all(size);
+            final long[] v = values;
+            final BitSet bits = new ParallelScan()
+            {
+                @Override
+                void scan(long[] words, int from, int to)
+                {
+                    for (int i=from; i < to; i++)
+                    {
+                        if (p.test(v[i])) words[i >>> 6] |= 1L << i;
+                    }
+                }
+            }.run(size, pool);
+            if (nulls != null)
+            {
+                applyNulls(filters, bits, nulls);
+            }
+            return bits;
+        }
+
+        @Override
+        void refine(Collection<? extends IFilterOperator<?>> filters, BitSet rows)
+        {
+            final LongPredicate p = FilterCompiler.compileLong(filters);
+            if (p == null) return;
+            final boolean nullMatches = nulls != null && matchesNull(filters);
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1))
+            {
+                final boolean match = nulls != null && nulls.get(i) ? nullMatches : p.test(values[i]);
+                if (match == false) rows.clear(i);
+            }
+        }
+
+        @Override
+        <S> void insert(int from, List<? extends S> added, ValueExtractor<? super S> extractor)
+        {
+            values = (long[])insertGap(values, size, from, added.size());
+            if (nulls != null && nulls.length() > from)
+            {
+                nulls = insertBits(nulls, from, added.size());
+            }
+            size += added.size();
+            update(from, added, extractor);
+        }
+
+        @Override
+        void remove(int from, int count)
+        {
+            removeGap(values, size, from, count);
+            if (nulls != null && nulls.length() > from)
+            {
+                nulls = removeBits(nulls, from, count);
+            }
+            size -= count;
+        }
+
+        @Override
+        <S> void update(int from, List<? extends S> updated, ValueExtractor<? super S> extractor)
+        {
+            if (extractor.getKind() == ValueExtractor.Kind.LONG)
+            {
+                for (int i=0; i < updated.size(); i++)
+                {
+                    values[from + i] = extractor.applyAsLong(updated.get(i));
+                }
+                return;
+            }
+
+            for (int i=0; i < updated.size(); i++)
+            {
+                final Object value = extractor.apply(updated.get(i));
+                if (value == null)
+                {
+                    if (nulls == null) nulls = new BitSet();
+                    nulls.set(from + i);
+                    values[from + i] = 0;
+                }
+                else
+                {
+                    if (nulls != null) nulls.clear(from + i);
+                    values[from + i] = FilterCompiler.toEpochMillis(value);
+                }
+            }
+        }
+    }
+
+    static final class DoubleVector extends ColumnVector
+    {
+        double[] values;
+
+        DoubleVector(double[] values, int size)
+        {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        BitSet scan(Collection<? extends IFilterOperator<?>> filters, ForkJoinPool pool)
+        {
+            final DoublePredicate p = FilterCompiler.compileDouble(filters);
+            if (p == null) return all(size);
+            final double[] v = values;
+            return new ParallelScan()
+            {
+                @Override
+                void scan(long[] words, int from, int to)
+                {
+                    for (int i=from; i < to; i++)
+                    {
+                        if (p.test(v[i])) words[i >>> 6] |= 1L << i;
+                    }
+                }
+            }.run(size, pool);
+        }
+
+        @Override
+        void refine(Collection<? extends IFilterOperator<?>> filters, BitSet rows)
+        {
+            final DoublePredicate p = FilterCompiler.compileDouble(filters);
+            if (p == null) return;
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1))
+            {
+                if (p.test(values[i]) == false) rows.clear(i);
+            }
+        }
+
+        @Override
+        <S> void insert(int from, List<? extends S> added, ValueExtractor<? super S> extractor)
+        {
+            values = (double[])insertGap(values, size, from, added.size());
+            size += added.size();
+            update(from, added, extractor);
+        }
+
+        @Override
+        void remove(int from, int count)
+        {
+            removeGap(values, size, from, count);
+            size -= count;
+        }
+
+        @Override
+        <S> void update(int from, List<? extends S> updated, ValueExtractor<? super S> extractor)
+        {
+            for (int i=0; i < updated.size(); i++)
+            {
+                values[from + i] = extractor.applyAsDouble(updated.get(i));
+            }
+        }
+    }
+
+    /**
+     * Stores a code for each row, which indexes into a dictionary of the distinct values.
+     * The filters are only evaluated once for each distinct value.
+     * <br/><br/>
+     * Values that are no longer used by any row stay in the dictionary, so the codes never change.
+     */
+    static final class DictionaryVector extends ColumnVector
+    {
+        int[] codes;
+        /** The distinct values; only the first {@link #dictionarySize} are used */
+        Object[] dictionary;
+        int dictionarySize;
+        /** Code of each value; built when first needed */
+        private Map<Object, Integer> lookup;
+
+        DictionaryVector(int[] codes, Object[] dictionary, int size)
+        {
+            this.codes = codes;
+            this.dictionary = dictionary;
+            this.dictionarySize = dictionary.length;
+            this.size = size;
+        }
+
+        /**
+         * @return For each code, if its value matches the filters
+         */
+        boolean[] matchingCodes(Collection<? extends IFilterOperator<?>> filters)
+        {
+            final Predicate<Object> p = FilterCompiler.compileValuePredicate(filters);
+            final boolean[] matches = new boolean[dictionarySize];
+            for (int c=0; c < dictionarySize; c++)
+            {
+                matches[c] = p == null || p.test(dictionary[c]);
+            }
+            return matches;
+        }
+
+        @Override
+        BitSet scan(Collection<? extends IFilterOperator<?>> filters, ForkJoinPool pool)
+        {
+            return rowsWithCodes(matchingCodes(filters), pool);
+        }
+
+        /**
+         * @param matches For each code, if its rows should be set
+         * @param pool Pool to scan chunks of the rows on in parallel, or null to scan them on the calling thread
+         * @return The rows holding the codes
+         */
+        BitSet rowsWithCodes(final boolean[] matches, ForkJoinPool pool)
+        {
+            final int[] c = codes;
+            return new ParallelScan()
+            {
+                @Override
+                void scan(long[] words, int from, int to)
+                {
+                    for (int i=from; i < to; i++)
+                    {
+                        if (matches[c[i]]) words[i >>> 6] |= 1L << i;
+                    }
+                }
+            }.run(size, pool);
+        }
+
+        @Override
+        void refine(Collection<? extends IFilterOperator<?>> filters, BitSet rows)
+        {
+            final boolean[] matches = matchingCodes(filters);
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1))
+            {
+                if (matches[codes[i]] == false) rows.clear(i);
+            }
+        }
+
+        @Override
+        <S> void insert(int from, List<? extends S> added, ValueExtractor<? super S> extractor)
+        {
+            codes = (int[])insertGap(codes, size, from, added.size());
+            size += added.size();
+            update(from, added, extractor);
+        }
+
+        @Override
+        void remove(int from, int count)
+        {
+            removeGap(codes, size, from, count);
+            size -= count;
+        }
+
+        @Override
+        <S> void update(int from, List<? extends S> updated, ValueExtractor<? super S> extractor)
+        {
+            for (int i=0; i < updated.size(); i++)
+            {
+                codes[from + i] = encode(extractor.apply(updated.get(i)));
+            }
+        }
+
+        /**
+         * @return The value's code, adding it to the dictionary if it's new
+         */
+        private int encode(Object value)
+        {
+            if (lookup == null)
+            {
+                lookup = new HashMap<>();
+                for (int c=0; c < dictionarySize; c++)
+                {
+                    lookup.put(dictionary[c], c);
+                }
+            }
+
+            final Integer code = lookup.get(value);
+            if (code != null) return code;
+
+            if (dictionarySize == dictionary.length)
+            {
+                dictionary = Arrays.copyOf(dictionary, Math.max(8, dictionarySize + (dictionarySize >> 1)));
+            }
+            dictionary[dictionarySize] = value;
+            lookup.put(value, dictionarySize);
+            return dictionarySize++;
+        }
+    }
+
+    /**
+     * @return If a row with a null value matches the filters
+     */
+    static boolean matchesNull(Collection<? extends IFilterOperator<?>> filters)
+    {
+        final Predicate<Object> p = FilterCompiler.compileValuePredicate(filters);
+        return p == null || p.test(null);
+    }
+
+    /**
+     * Set or clear the bits of the null rows, depending on if null matches the filters
+     */
+    static void applyNulls(Collection<? extends IFilterOperator<?>> filters, BitSet bits, BitSet nulls)
+    {
+        if (matchesNull(filters))
+        {
+            bits.or(nulls);
+        }
+        else
+        {
+            bits.andNot(nulls);
+        }
+    }
+}
@@ -0,0 +1,741 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A compressed set of row indexes.
+ * <br/><br/>
+ * The row indexes are split into chunks of 65536 rows, keyed by their high 16 bits.  Each chunk is
+ * stored in the smallest of three containers: a sorted array of the low 16 bits (for sparse chunks),
+ * a 65536 bit bitmap (for dense chunks), or a list of runs of consecutive rows (for clustered chunks).
+ * This keeps the bitmaps of a low-cardinality column small, and lets them be AND'd and OR'd
+ * without touching every row.
+ * <br/><br/>
+ * Bitmaps are built by appending row indexes in increasing order.  Rows can then be added and
+ * removed in any order, and the rows after an index moved up or down as rows are inserted into
+ * or removed from the column; only the affected chunks are changed.
+ *
+ * @author JHS
+ */
+final class CompressedBitmap
+{
+    /** Largest cardinality stored in an array container */
+    private static final int MAX_ARRAY = 4096;
+    /** Number of longs in a bitmap container */
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+
+    /**
+     * Add a row; rows must be appended in increasing order
+     */
+    void append(int row)
+    {
+        final char key = (char)(row >>> 16);
+        if (size == 0 || keys[size - 1] != key)
+        {
+            addContainer(key, new ArrayContainer());
+        }
+        containers[size - 1] = containers[size - 1].append((char)row);
+    }
+
+    /**
+     * Add a row, in any order
+     */
+    void add(int row)
+    {
+        final char key = (char)(row >>> 16);
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i < 0)
+        {
+            i = -i - 1;
+            insertContainer(i, key, new ArrayContainer());
+        }
+        containers[i] = containers[i].add((char)row);
+    }
+
+    void remove(int row)
+    {
+        final int i = Arrays.binarySearch(keys, 0, size, (char)(row >>> 16));
+        if (i < 0)
+        {
+            return;
+        }
+        final Container c = containers[i].remove((char)row);
+        if (c == null)
+        {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+            containers[--size] = null;
+        }
+        else
+        {
+            containers[i] = c;
+        }
+    }
+
+    /**
+     * Move the rows at and after the index up by count, as count rows were inserted before them
+     */
+    void insertRows(int from, int count)
+    {
+        moveRows(from, from, count);
+    }
+
+    /**
+     * Drop the rows [from, from + count), and move the rows after them down by count
+     */
+    void removeRows(int from, int count)
+    {
+        moveRows(from, from + count, -count);
+    }
+
+    /**
+     * Drop the rows [from, to), and move the rows after them by delta.
+     * Only the chunks from the one holding the from row are rebuilt.
+     */
+    private void moveRows(int from, int to, int delta)
+    {
+        int first = Arrays.binarySearch(keys, 0, size, (char)(from >>> 16));
+        if (first < 0)
+        {
+            first = -first - 1;
+        }
+        if (first == size)
+        {
+            return;
+        }
+
+        final CompressedBitmap moved = new CompressedBitmap();
+        final long[] words = new long[WORDS];
+        for (int i=first; i < size; i++)
+        {
+            Arrays.fill(words, 0);
+            containers[i].orInto(words, 0);
+            final int base = keys[i] << 16;
+            for (int w=0; w < WORDS; w++)
+            {
+                long bits = words[w];
+                while (bits != 0)
+                {
+                    final int row = base + (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (row < from) moved.append(row);
+                    else if (row >= to) moved.append(row + delta);
+                }
+            }
+        }
+        moved.runOptimize();
+
+        Arrays.fill(containers, first, size, null);
+        size = first;
+        for (int i=0; i < moved.size; i++)
+        {
+            addContainer(moved.keys[i], moved.containers[i]);
+        }
+    }
+
+    /**
+     * Convert containers to run containers, where they would be smaller
+     */
+    void runOptimize()
+    {
+        for (int i=0; i < size; i++)
+        {
+            containers[i] = containers[i].runOptimize();
+        }
+    }
+
+    /**
+     * @return The number of rows in the bitmap
+     */
+    int cardinality()
+    {
+        int card = 0;
+        for (int i=0; i < size; i++)
+        {
+            card += containers[i].cardinality();
+        }
+        return card;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * @return The rows in both bitmaps
+     */
+    CompressedBitmap and(CompressedBitmap other)
+    {
+        final CompressedBitmap ret = new CompressedBitmap();
+        int i = 0, j = 0;
+        while (i < size && j < other.size)
+        {
+            if (keys[i] < other.keys[j])
+            {
+                i++;
+            }
+            else if (keys[i] > other.keys[j])
+            {
+                j++;
+            }
+            else
+            {
+                final Container c = and(containers[i], other.containers[j]);
+                if (c != null)
+                {
+                    ret.addContainer(keys[i], c);
+                }
+                i++;
+                j++;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return The rows in any of the bitmaps
+     */
+    static CompressedBitmap or(List<CompressedBitmap> bitmaps)
+    {
+        if (bitmaps.size() == 1)
+        {
+            return bitmaps.get(0);
+        }
+
+        final Map<Character, long[]> chunks = new TreeMap<>();
+        for (CompressedBitmap bitmap : bitmaps)
+        {
+            for (int i=0; i < bitmap.size; i++)
+            {
+                long[] words = chunks.get(bitmap.keys[i]);
+                if (words == null)
+                {
+                    words = new long[WORDS];
+                    chunks.put(bitmap.keys[i], words);
+                }
+                bitmap.containers[i].orInto(words, 0);
+            }
+        }
+
+        final CompressedBitmap ret = new CompressedBitmap();
+        for (Map.Entry<Character, long[]> e : chunks.entrySet())
+        {
+            final Container c = fromWords(e.getValue());
+            if (c != null)
+            {
+                ret.addContainer(e.getKey(), c);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return The rows as a {@link BitSet}
+     */
+    BitSet toBitSet()
+    {
+        if (size == 0)
+        {
+            return new BitSet();
+        }
+        final long[] words = new long[(keys[size - 1] + 1) * WORDS];
+        for (int i=0; i < size; i++)
+        {
+            containers[i].orInto(words, keys[i] * WORDS);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    private void addContainer(char key, Container c)
+    {
+        if (size == keys.length)
+        {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        keys[size] = key;
+        containers[size] = c;
+        size++;
+    }
+
+    private void insertContainer(int i, char key, Container c)
+    {
+        addContainer(key, c);
+        System.arraycopy(keys, i, keys, i + 1, size - i - 1);
+        System.arraycopy(containers, i, containers, i + 1, size - i - 1);
+        keys[i] = key;
+        containers[i] = c;
+    }
+
+    private static Container and(Container a, Container b)
+    {
+        if (a instanceof ArrayContainer)
+        {
+            return ((ArrayContainer)a).filter(b);
+        }
+        if (b instanceof ArrayContainer)
+        {
+            return ((ArrayContainer)b).filter(a);
+        }
+
+        final long[] words = new long[WORDS];
+        final long[] other = new long[WORDS];
+        a.orInto(words, 0);
+        b.orInto(other, 0);
+        for (int i=0; i < WORDS; i++)
+        {
+            words[i] &= other[i];
+        }
+        return fromWords(words);
+    }
+
+    /**
+     * @return The smallest of an array or bitmap container holding the bits, or null if no bits are set
+     */
+    private static Container fromWords(long[] words)
+    {
+        int card = 0;
+        for (long w : words)
+        {
+            card += Long.bitCount(w);
+        }
+        if (card == 0)
+        {
+            return null;
+        }
+        if (card > MAX_ARRAY)
+        {
+            return new BitmapContainer(words, card);
+        }
+
+        final char[] values = new char[card];
+        int n = 0;
+        for (int i=0; i < WORDS; i++)
+        {
+            long w = words[i];
+            while (w != 0)
+            {
+                values[n++] = (char)((i << 6) + Long.numberOfTrailingZeros(w));
+                w &= w - 1;
+            }
+        }
+        return new ArrayContainer(values, card);
+    }
+
+    /**
+     * Set the bits [from, to] in the words
+     */
+    private static void setRange(long[] words, int offset, int from, int to)
+    {
+        final int first = from >>> 6;
+        final int last = to >>> 6;
+        final long firstMask = -1L << from;
+        final long lastMask = -1L >>> (63 - (to & 63));
+        if (first == last)
+        {
+            words[offset + first] |= firstMask & lastMask;
+            return;
+        }
+        words[offset + first] |= firstMask;
+        for (int i = first + 1; i < last; i++)
+        {
+            words[offset + i] = -1L;
+        }
+        words[offset + last] |= lastMask;
+    }
+
+
+    /**
+     * Holds the low 16 bits of the rows in a chunk
+     */
+    private static abstract class Container
+    {
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        /**
+         * OR the container's bits into a bitmap, starting at the offset word
+         */
+        abstract void orInto(long[] words, int offset);
+
+        /**
+         * @return The container holding the appended value; may be a new container
+         */
+        abstract Container append(char value);
+
+        /**
+         * @return The container holding the added value; may be a new container
+         */
+        abstract Container add(char value);
+
+        /**
+         * @return The container without the value; may be a new container, or null if it is now empty
+         */
+        abstract Container remove(char value);
+
+        /**
+         * @return The number of runs of consecutive values
+         */
+        abstract int runCount();
+
+        /**
+         * @return The smallest container holding these values
+         */
+        Container runOptimize()
+        {
+            final int runs = runCount();
+            // A run takes 4 bytes, an array value 2 bytes, and a bitmap 8KB
+            if (runs * 4 >= Math.min(cardinality() * 2, WORDS * 8))
+            {
+                return this;
+            }
+
+            final long[] words = new long[WORDS];
+            orInto(words, 0);
+            final RunContainer ret = new RunContainer(runs);
+            for (int i=0; i < WORDS; i++)
+            {
+                long w = words[i];
+                while (w != 0)
+                {
+                    ret.append((char)((i << 6) + Long.numberOfTrailingZeros(w)));
+                    w &= w - 1;
+                }
+            }
+            return ret;
+        }
+    }
+
+    private static final class ArrayContainer extends Container
+    {
+        private char[] values;
+        private int card;
+
+        ArrayContainer()
+        {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int card)
+        {
+            this.values = values;
+            this.card = card;
+        }
+
+        @Override
+        int cardinality()
+        {
+            return card;
+        }
+
+        @Override
+        boolean contains(char value)
+        {
+            return Arrays.binarySearch(values, 0, card, value) >= 0;
+        }
+
+        @Override
+        void orInto(long[] words, int offset)
+        {
+            for (int i=0; i < card; i++)
+            {
+                final char v = values[i];
+                words[offset + (v >>> 6)] |= 1L << v;
+            }
+        }
+
+        @Override
+        Container append(char value)
+        {
+            if (card == MAX_ARRAY)
+            {
+                final long[] words = new long[WORDS];
+                orInto(words, 0);
+                return new BitmapContainer(words, card).append(value);
+            }
+            if (card == values.length)
+            {
+                values = Arrays.copyOf(values, Math.min(card * 2, MAX_ARRAY));
+            }
+            values[card++] = value;
+            return this;
+        }
+
+        @Override
+        Container add(char value)
+        {
+            int i = Arrays.binarySearch(values, 0, card, value);
+            if (i >= 0)
+            {
+                return this;
+            }
+            if (card == MAX_ARRAY)
+            {
+                final long[] words = new long[WORDS];
+                orInto(words, 0);
+                return new BitmapContainer(words, card).add(value);
+            }
+            if (card == values.length)
+            {
+                values = Arrays.copyOf(values, Math.min(card * 2, MAX_ARRAY));
+            }
+            i = -i - 1;
+            System.arraycopy(values, i, values, i + 1, card - i);
+            values[i] = value;
+            card++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value)
+        {
+            final int i = Arrays.binarySearch(values, 0, card, value);
+            if (i < 0)
+            {
+                return this;
+            }
+            System.arraycopy(values, i + 1, values, i, card - i - 1);
+            card--;
+            return card == 0 ? null : this;
+        }
+
+        @Override
+        int runCount()
+        {
+            int runs = 0;
+            for (int i=0; i < card; i++)
+            {
+                if (i == 0 || values[i] != values[i - 1] + 1) runs++;
+            }
+            return runs;
+        }
+
+        /**
+         * @return The values also in the other container, or null if there are none
+         */
+        Container filter(Container other)
+        {
+            final char[] ret = new char[card];
+            int n = 0;
+            for (int i=0; i < card; i++)
+            {
+                if (other.contains(values[i])) ret[n++] = values[i];
+            }
+            return n == 0 ? null : new ArrayContainer(ret, n);
+        }
+    }
+
+    private static final class BitmapContainer extends Container
+    {
+        private final long[] words;
+        private int card;
+
+        BitmapContainer(long[] words, int card)
+        {
+            this.words = words;
+            this.card = card;
+        }
+
+        @Override
+        int cardinality()
+        {
+            return card;
+        }
+
+        @Override
+        boolean contains(char value)
+        {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        void orInto(long[] dest, int offset)
+        {
+            for (int i=0; i < WORDS; i++)
+            {
+                dest[offset + i] |= words[i];
+            }
+        }
+
+        @Override
+        Container append(char value)
+        {
+            words[value >>> 6] |= 1L << value;
+            card++;
+            return this;
+        }
+
+        @Override
+        Container add(char value)
+        {
+            if (contains(value) == false)
+            {
+                words[value >>> 6] |= 1L << value;
+                card++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value)
+        {
+            if (contains(value) == false)
+            {
+                return this;
+            }
+            words[value >>> 6] &= ~(1L << value);
+            card--;
+            // Switch back to an array once it is smaller
+            return card > MAX_ARRAY ? this : fromWords(words);
+        }
+
+        @Override
+        int runCount()
+        {
+            int runs = 0;
+            long carry = 0;
+            for (long w : words)
+            {
+                // Count the set bits whose preceding bit is not set
+                runs += Long.bitCount(w & ~((w << 1) | carry));
+                carry = w >>> 63;
+            }
+            return runs;
+        }
+    }
+
+    private static final class RunContainer extends Container
+    {
+        private char[] starts;
+        /** Length of each run, minus one */
+        private char[] lengths;
+        private int runs;
+
+        RunContainer(int capacity)
+        {
+            starts = new char[Math.max(capacity, 1)];
+            lengths = new char[Math.max(capacity, 1)];
+        }
+
+        @Override
+        int cardinality()
+        {
+            int card = 0;
+            for (int i=0; i < runs; i++)
+            {
+                card += lengths[i] + 1;
+            }
+            return card;
+        }
+
+        @Override
+        boolean contains(char value)
+        {
+            int i = Arrays.binarySearch(starts, 0, runs, value);
+            if (i >= 0)
+            {
+                return true;
+            }
+            i = -i - 2; // run starting before the value
+            return i >= 0 && value <= starts[i] + lengths[i];
+        }
+
+        @Override
+        void orInto(long[] words, int offset)
+        {
+            for (int i=0; i < runs; i++)
+            {
+                setRange(words, offset, starts[i], starts[i] + lengths[i]);
+            }
+        }
+
+        @Override
+        Container append(char value)
+        {
+            if (runs > 0 && value == starts[runs - 1] + lengths[runs - 1] + 1)
+            {
+                lengths[runs - 1]++;
+                return this;
+            }
+            if (runs == starts.length)
+            {
+                starts = Arrays.copyOf(starts, runs * 2);
+                lengths = Arrays.copyOf(lengths, runs * 2);
+            }
+            starts[runs] = value;
+            lengths[runs] = 0;
+            runs++;
+            return this;
+        }
+
+        @Override
+        Container add(char value)
+        {
+            return contains(value) ? this : expand().add(value);
+        }
+
+        @Override
+        Container remove(char value)
+        {
+            return contains(value) ? expand().remove(value) : this;
+        }
+
+        /**
+         * @return The values in an array or bitmap container, which can be changed more cheaply
+         */
+        private Container expand()
+        {
+            final long[] words = new long[WORDS];
+            orInto(words, 0);
+            return fromWords(words);
+        }
+
+        @Override
+        int runCount()
+        {
+            return runs;
+        }
+
+        @Override
+        Container runOptimize()
+        {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,1006 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+import org.google.jhsheets.filtered.operators.BooleanOperator;
+import org.google.jhsheets.filtered.operators.DateOperator;
+import org.google.jhsheets.filtered.operators.EnumOperator;
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.operators.NumberOperator;
+import org.google.jhsheets.filtered.operators.StringOperator;
+
+/**
+ * Compiles the {@link IFilterOperator}'s of a column into a single {@link Predicate}.
+ * <br/><br/>
+ * All type checks and value conversions of the operators are done once, at compile time,
+ * so the returned predicates only have to do the actual comparison for each row.
+ * <br/><br/>
+ * Within a column, operators of type {@link IFilterOperator.Type#NONE} are ignored,
+ * {@link EnumOperator}'s are OR'd together (any of the selected values matches, and IN and NOTIN
+ * operators are a single hash or {@link java.util.EnumSet} lookup),
+ * and all other operators are AND'd together (ie: a range made from a GREATERTHAN and a LESSTHAN).
+ * A column without any operators accepts every row.
+ * <br/><br/>
+ * {@link NumberOperator}'s and {@link DateOperator}'s can also be compiled into primitive
+ * {@link IntPredicate}'s, {@link LongPredicate}'s and {@link DoublePredicate}'s. The operators'
+ * values are unboxed once, and all of the column's comparisons are merged into a single
+ * range check (plus any NOTEQUALS values), so no row value is ever boxed.
+ *
+ * @author JHS
+ */
+public final class FilterCompiler
+{
+    private FilterCompiler()
+    {
+    }
+
+    /**
+     * Compile the filters of a column into a predicate over the table's rows
+     *
+     * @param filters The filters applied to the column
+     * @param extractor Function used to fetch the column's value from a row
+     * @return Predicate that accepts the rows matching all the filters
+     */
+    public static <S> Predicate<S> compile(Collection<? extends IFilterOperator<?>> filters, final Function<? super S, ?> extractor)
+    {
+        final Predicate<Object> valuePredicate = compileValuePredicate(filters);
+        if (valuePredicate == null)
+        {
+            return null;
+        }
+
+        return new Predicate<S>()
+        {
+            @Override
+            public boolean test(S row)
+            {
+                return valuePredicate.test(extractor.apply(row));
+            }
+        };
+    }
+
+    /**
+     * Compile the filters of a column into a predicate over the table's rows.
+     * If the extractor returns primitive values, and all the filters are numeric,
+     * the row values are compared without boxing them.
+     *
+     * @param filters The filters applied to the column
+     * @param extractor Fetches the column's value from a row
+     * @return Predicate that accepts the rows matching all the filters, or null if there are no filters to apply
+     */
+    public static <S> Predicate<S> compile(Collection<? extends IFilterOperator<?>> filters, final ValueExtractor<? super S> extractor)
+    {
+        if (extractor.getKind() != ValueExtractor.Kind.OBJECT && isNumeric(filters))
+        {
+            switch (extractor.getKind())
+            {
+                case INT:
+                {
+                    final IntPredicate p = compileInt(filters);
+                    return p == null ? null : new Predicate<S>()
+                    {
+                        @Override
+                        public boolean test(S row)
+                        {
+                            return p.test(extractor.applyAsInt(row));
+                        }
+                    };
+                }
+                case LONG:
+                {
+                    final LongPredicate p = compileLong(filters);
+                    return p == null ? null : new Predicate<S>()
+                    {
+                        @Override
+                        public boolean test(S row)
+                        {
+                            return p.test(extractor.applyAsLong(row));
+                        }
+                    };
+                }
+                default:
+                {
+                    final DoublePredicate p = compileDouble(filters);
+                    return p == null ? null : new Predicate<S>()
+                    {
+                        @Override
+                        public boolean test(S row)
+                        {
+                            return p.test(extractor.applyAsDouble(row));
+                        }
+                    };
+                }
+            }
+        }
+
+        return compile(filters, new Function<S, Object>()
+        {
+            @Override
+            public Object apply(S row)
+            {
+                return extractor.apply(row);
+            }
+        });
+    }
+
+    /**
+     * Compile numeric or date filters into a predicate over int values
+     *
+     * @param filters {@link NumberOperator}'s or {@link DateOperator}'s
+     * @return Predicate that accepts the values matching all the filters, or null if there are no filters to apply
+     */
+    public static IntPredicate compileInt(Collection<? extends IFilterOperator<?>> filters)
+    {
+        final IntegerBounds bounds = IntegerBounds.of(filters, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        if (bounds == null)
+        {
+            return null;
+        }
+        if (bounds.isEmpty())
+        {
+            return new IntPredicate()
+            {
+                @Override
+                public boolean test(int value)
+                {
+                    return false;
+                }
+            };
+        }
+
+        final int lo = (int)bounds.lo();
+        final int hi = (int)bounds.hi();
+        final long[] excluded = bounds.excluded();
+        if (excluded.length == 0)
+        {
+            return new IntPredicate()
+            {
+                @Override
+                public boolean test(int value)
+                {
+                    return value >= lo && value <= hi;
+                }
+            };
+        }
+        if (excluded.length == 1)
+        {
+            final int ex = (int)excluded[0];
+            return new IntPredicate()
+            {
+                @Override
+                public boolean test(int value)
+                {
+                    return value >= lo && value <= hi && value != ex;
+                }
+            };
+        }
+
+        final int[] exs = new int[excluded.length];
+        for (int i=0; i < exs.length; i++) exs[i] = (int)excluded[i];
+        return new IntPredicate()
+        {
+            @Override
+            public boolean test(int value)
+            {
+                return value >= lo && value <= hi && Arrays.binarySearch(exs, value) < 0;
+            }
+        };
+    }
+
+    /**
+     * Compile numeric or date filters into a predicate over long values.
+     * Dates are compared by their epoch millisecond value.
+     *
+     * @param filters {@link NumberOperator}'s or {@link DateOperator}'s
+     * @return Predicate that accepts the values matching all the filters, or null if there are no filters to apply
+     */
+    public static LongPredicate compileLong(Collection<? extends IFilterOperator<?>> filters)
+    {
+        final IntegerBounds bounds = IntegerBounds.of(filters, Long.MIN_VALUE, Long.MAX_VALUE);
+        if (bounds == null)
+        {
+            return null;
+        }
+        if (bounds.isEmpty())
+        {
+            return new LongPredicate()
+            {
+                @Override
+                public boolean test(long value)
+                {
+                    return false;
+                }
+            };
+        }
+
+        final long lo = bounds.lo();
+        final long hi = bounds.hi();
+        final long[] excluded = bounds.excluded();
+        if (excluded.length == 0)
+        {
+            return new LongPredicate()
+            {
+                @Override
+                public boolean test(long value)
+                {
+                    return value >= lo && value <= hi;
+                }
+            };
+        }
+        if (excluded.length == 1)
+        {
+            final long ex = excluded[0];
+            return new LongPredicate()
+            {
+                @Override
+                public boolean test(long value)
+                {
+                    return value >= lo && value <= hi && value != ex;
+                }
+            };
+        }
+        return new LongPredicate()
+        {
+            @Override
+            public boolean test(long value)
+            {
+                return value >= lo && value <= hi && Arrays.binarySearch(excluded, value) < 0;
+            }
+        };
+    }
+
+    /**
+     * Compile numeric or date filters into a predicate over double values.
+     * NaN values only match NOTEQUALS filters.
+     *
+     * @param filters {@link NumberOperator}'s or {@link DateOperator}'s
+     * @return Predicate that accepts the values matching all the filters, or null if there are no filters to apply
+     */
+    public static DoublePredicate compileDouble(Collection<? extends IFilterOperator<?>> filters)
+    {
+        final DoubleBounds bounds = DoubleBounds.of(filters);
+        if (bounds == null)
+        {
+            return null;
+        }
+        if (bounds.isEmpty())
+        {
+            return new DoublePredicate()
+            {
+                @Override
+                public boolean test(double value)
+                {
+                    return false;
+                }
+            };
+        }
+
+        final double min = bounds.lo;
+        final double max = bounds.hi;
+        final boolean checkRange = bounds.ranged;
+        final double[] excluded = bounds.excluded();
+
+        return new DoublePredicate()
+        {
+            @Override
+            public boolean test(double value)
+            {
+                if (checkRange && (value >= min && value <= max) == false)
+                {
+                    return false;
+                }
+                for (double ex : excluded)
+                {
+                    if (value == ex) return false;
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return If all the filters can be compiled into primitive predicates
+     */
+    static boolean isNumeric(Collection<? extends IFilterOperator<?>> filters)
+    {
+        for (IFilterOperator<?> filter : filters)
+        {
+            if (filter == null || filter.getType() == IFilterOperator.Type.NONE)
+            {
+                continue;
+            }
+            if ((filter instanceof NumberOperator || filter instanceof DateOperator) == false)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The value of a {@link NumberOperator}, or the epoch milliseconds of a {@link DateOperator}
+     */
+    private static Number numericValue(IFilterOperator<?> filter)
+    {
+        final Object value = filter.getValue();
+        if (value == null)
+        {
+            throw new IllegalArgumentException(String.format("Filter value cannot be null for type: %s", filter.getType()));
+        }
+        if (filter instanceof NumberOperator)
+        {
+            return (Number)value;
+        }
+        if (filter instanceof DateOperator)
+        {
+            return ((Date)value).getTime();
+        }
+        throw unsupported(filter);
+    }
+
+    /**
+     * Compile the filters of a column into a predicate over the column's values
+     *
+     * @param filters The filters applied to the column
+     * @return Predicate that accepts the values matching all the filters,
+     *         or null if there are no filters to apply
+     */
+    public static Predicate<Object> compileValuePredicate(Collection<? extends IFilterOperator<?>> filters)
+    {
+        final List<Predicate<Object>> allOf = new ArrayList<>();
+        final List<Predicate<Object>> anyOf = new ArrayList<>();
+
+        for (IFilterOperator<?> filter : filters)
+        {
+            if (filter == null || filter.getType() == IFilterOperator.Type.NONE)
+            {
+                continue;
+            }
+
+            if (filter instanceof EnumOperator)
+            {
+                anyOf.add(compileEnum((EnumOperator<?>)filter));
+            }
+            else
+            {
+                allOf.add(compileOperator(filter));
+            }
+        }
+
+        if (anyOf.isEmpty() == false)
+        {
+            allOf.add(or(anyOf));
+        }
+
+        return allOf.isEmpty() ? null : and(allOf);
+    }
+
+    /**
+     * @return A predicate that short-circuits on the first predicate that rejects a row
+     */
+    public static <S> Predicate<S> and(List<? extends Predicate<? super S>> predicates)
+    {
+        if (predicates.size() == 1)
+        {
+            return narrow(predicates.get(0));
+        }
+
+        final Predicate<? super S>[] chain = toArray(predicates);
+        return new Predicate<S>()
+        {
+            @Override
+            public boolean test(S row)
+            {
+                for (Predicate<? super S> p : chain)
+                {
+                    if (p.test(row) == false) return false;
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return A predicate that short-circuits on the first predicate that accepts a row
+     */
+    public static <S> Predicate<S> or(List<? extends Predicate<? super S>> predicates)
+    {
+        if (predicates.size() == 1)
+        {
+            return narrow(predicates.get(0));
+        }
+
+        final Predicate<? super S>[] chain = toArray(predicates);
+        return new Predicate<S>()
+        {
+            @Override
+            public boolean test(S row)
+            {
+                for (Predicate<? super S> p : chain)
+                {
+                    if (p.test(row)) return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static Predicate<Object> compileOperator(IFilterOperator<?> filter)
+    {
+        if (filter instanceof NumberOperator)
+        {
+            return compileNumber((NumberOperator<?>)filter);
+        }
+        else if (filter instanceof StringOperator)
+        {
+            return compileString((StringOperator)filter);
+        }
+        else if (filter instanceof DateOperator)
+        {
+            return compileDate((DateOperator)filter);
+        }
+        else if (filter instanceof BooleanOperator)
+        {
+            return compileBoolean((BooleanOperator)filter);
+        }
+        throw unsupported(filter);
+    }
+
+    private static Predicate<Object> compileNumber(NumberOperator<?> filter)
+    {
+        final Number value = filter.getValue();
+        final IFilterOperator.Type type = filter.getType();
+        if (value == null)
+        {
+            throw new IllegalArgumentException(String.format("Filter value cannot be null for type: %s", type));
+        }
+
+        final ValueComparison comparison = ValueComparison.of(type);
+        if (comparison == null)
+        {
+            throw unsupported(filter);
+        }
+        final boolean valueIsNaN = isNaN(value);
+
+        return new Predicate<Object>()
+        {
+            @Override
+            public boolean test(Object cell)
+            {
+                // Like primitive doubles, NaN is only not equal to values
+                if (cell == null || valueIsNaN || isNaN((Number)cell))
+                {
+                    return type == IFilterOperator.Type.NOTEQUALS;
+                }
+                return comparison.matches(compareNumbers((Number)cell, value));
+            }
+        };
+    }
+
+    private static Predicate<Object> compileDate(DateOperator filter)
+    {
+        final IFilterOperator.Type type = filter.getType();
+        if (filter.getValue() == null)
+        {
+            throw new IllegalArgumentException(String.format("Filter value cannot be null for type: %s", type));
+        }
+
+        final ValueComparison comparison = ValueComparison.of(type);
+        if (comparison == null)
+        {
+            throw unsupported(filter);
+        }
+
+        final long value = filter.getValue().getTime();
+        return new Predicate<Object>()
+        {
+            @Override
+            public boolean test(Object cell)
+            {
+                if (cell == null)
+                {
+                    return type == IFilterOperator.Type.NOTEQUALS;
+                }
+                return comparison.matches(Long.compare(toEpochMillis(cell), value));
+            }
+        };
+    }
+
+    private static Predicate<Object> compileString(StringOperator filter)
+    {
+        final String value = filter.getValue();
+        if (value == null)
+        {
+            throw new IllegalArgumentException(String.format("Filter value cannot be null for type: %s", filter.getType()));
+        }
+
+        switch (filter.getType())
+        {
+            case EQUALS:
+                return new Predicate<Object>()
+                {
+                    @Override
+                    public boolean test(Object cell)
+                    {
+                        return cell != null && value.equals(cell.toString());
+                    }
+                };
+            case NOTEQUALS:
+                return new Predicate<Object>()
+                {
+                    @Override
+                    public boolean test(Object cell)
+                    {
+                        return cell == null || value.equals(cell.toString()) == false;
+                    }
+                };
+            case CONTAINS:
+                return new Predicate<Object>()
+                {
+                    @Override
+                    public boolean test(Object cell)
+                    {
+                        return cell != null && cell.toString().contains(value);
+                    }
+                };
+            case STARTSWITH:
+                return new Predicate<Object>()
+                {
+                    @Override
+                    public boolean test(Object cell)
+                    {
+                        return cell != null && cell.toString().startsWith(value);
+                    }
+                };
+            case ENDSWITH:
+                return new Predicate<Object>()
+                {
+                    @Override
+                    public boolean test(Object cell)
+                    {
+                        return cell != null && cell.toString().endsWith(value);
+                    }
+                };
+            default:
+                throw unsupported(filter);
+        }
+    }
+
+    private static Predicate<Object> compileBoolean(BooleanOperator filter)
+    {
+        final Boolean value;
+        switch (filter.getType())
+        {
+            case TRUE:
+                value = Boolean.TRUE;
+                break;
+            case FALSE:
+                value = Boolean.FALSE;
+                break;
+            default:
+                throw unsupported(filter);
+        }
+
+        return new Predicate<Object>()
+        {
+            @Override
+            public boolean test(Object cell)
+            {
+                return value.equals(cell);
+            }
+        };
+    }
+
+    private static Predicate<Object> compileEnum(EnumOperator<?> filter)
+    {
+        if ((filter.getType() == IFilterOperator.Type.IN || filter.getType() == IFilterOperator.Type.NOTIN) && filter.getValues() != null)
+        {
+            // Null is held apart, so the values can be an EnumSet
+            final Set<?> values = filter.getValues();
+            final boolean matchesNull = filter.matchesNull();
+            if (filter.getType() == IFilterOperator.Type.IN)
+            {
+                return new Predicate<Object>()
+                {
+                    @Override
+                    public boolean test(Object cell)
+                    {
+                        return cell == null ? matchesNull : values.contains(cell);
+                    }
+                };
+            }
+            return new Predicate<Object>()
+            {
+                @Override
+                public boolean test(Object cell)
+                {
+                    return cell == null ? matchesNull : values.contains(cell) == false;
+                }
+            };
+        }
+        if (filter.getType() != IFilterOperator.Type.EQUALS)
+        {
+            throw unsupported(filter);
+        }
+
+        final Object value = filter.getValue();
+        return new Predicate<Object>()
+        {
+            @Override
+            public boolean test(Object cell)
+            {
+                return value == null ? cell == null : value.equals(cell);
+            }
+        };
+    }
+
+    /**
+     * Compare two numbers that may not be of the same {@link Number} subclass.
+     * Floating point values compare the same way as primitives, so -0.0 is equal to 0.0.
+     * Neither number may be NaN, which isn't less than, equal to, or greater than any value.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static int compareNumbers(Number a, Number b)
+    {
+        if (a.getClass() == b.getClass() && a instanceof Comparable && isFloating(a) == false)
+        {
+            return ((Comparable)a).compareTo(b);
+        }
+        if (isIntegral(a) && isIntegral(b))
+        {
+            return Long.compare(a.longValue(), b.longValue());
+        }
+        if (a instanceof BigDecimal || a instanceof BigInteger || b instanceof BigDecimal || b instanceof BigInteger)
+        {
+            return toBigDecimal(a).compareTo(toBigDecimal(b));
+        }
+        final double x = a.doubleValue();
+        final double y = b.doubleValue();
+        return x < y ? -1 : (x > y ? 1 : 0);
+    }
+
+    /**
+     * @return If the number is a floating point NaN
+     */
+    static boolean isNaN(Number n)
+    {
+        return isFloating(n) && Double.isNaN(n.doubleValue());
+    }
+
+    private static boolean isFloating(Number n)
+    {
+        return n instanceof Double || n instanceof Float;
+    }
+
+    private static boolean isIntegral(Number n)
+    {
+        return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte;
+    }
+
+    private static BigDecimal toBigDecimal(Number n)
+    {
+        if (n instanceof BigDecimal) return (BigDecimal)n;
+        if (n instanceof BigInteger) return new BigDecimal((BigInteger)n);
+        if (isIntegral(n)) return BigDecimal.valueOf(n.longValue());
+        return BigDecimal.valueOf(n.doubleValue());
+    }
+
+    /**
+     * Date columns may hold a {@link Date}, {@link Calendar} or an epoch millisecond value
+     */
+    static long toEpochMillis(Object cell)
+    {
+        if (cell instanceof Date) return ((Date)cell).getTime();
+        if (cell instanceof Calendar) return ((Calendar)cell).getTimeInMillis();
+        if (cell instanceof Number) return ((Number)cell).longValue();
+        throw new IllegalArgumentException(String.format("Cannot filter %s as a date", cell.getClass().getName()));
+    }
+
+    private static IllegalArgumentException unsupported(IFilterOperator<?> filter)
+    {
+        return new IllegalArgumentException(String.format("Unsupported filter type %s for %s"
+                , filter.getType(), filter.getClass().getSimpleName()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> Predicate<S> narrow(Predicate<? super S> p)
+    {
+        return (Predicate<S>)p;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> Predicate<? super S>[] toArray(List<? extends Predicate<? super S>> predicates)
+    {
+        return predicates.toArray((Predicate<? super S>[])new Predicate<?>[predicates.size()]);
+    }
+
+    /**
+     * The AND of a column's numeric filters, merged into an inclusive integer range
+     * and a set of excluded values
+     */
+    static final class IntegerBounds
+    {
+        private BigInteger lo;
+        private BigInteger hi;
+        private boolean empty;
+        private boolean ranged;
+        private final List<BigInteger> excluded = new ArrayList<>();
+
+        private IntegerBounds(long min, long max)
+        {
+            this.lo = BigInteger.valueOf(min);
+            this.hi = BigInteger.valueOf(max);
+        }
+
+        /**
+         * @return The merged bounds of the filters, clamped to [min,max], or null if there are no filters
+         */
+        static IntegerBounds of(Collection<? extends IFilterOperator<?>> filters, long min, long max)
+        {
+            final IntegerBounds bounds = new IntegerBounds(min, max);
+            boolean hasFilter = false;
+
+            for (IFilterOperator<?> filter : filters)
+            {
+                if (filter == null || filter.getType() == IFilterOperator.Type.NONE)
+                {
+                    continue;
+                }
+                hasFilter = true;
+
+                final ValueComparison comparison = ValueComparison.of(filter.getType());
+                if (comparison == null)
+                {
+                    throw unsupported(filter);
+                }
+                bounds.add(comparison, numericValue(filter));
+            }
+
+            return hasFilter ? bounds : null;
+        }
+
+        private void add(ValueComparison comparison, Number value)
+        {
+            final double d = value.doubleValue();
+            if ((value instanceof Double || value instanceof Float) && (Double.isNaN(d) || Double.isInfinite(d)))
+            {
+                // Nothing is equal to NaN, and no integer is beyond infinity
+                final boolean unbounded = Double.isNaN(d) == false
+                        && ((d > 0 && (comparison == ValueComparison.LT || comparison == ValueComparison.LE))
+                            || (d < 0 && (comparison == ValueComparison.GT || comparison == ValueComparison.GE)));
+                if (comparison != ValueComparison.NE && unbounded == false)
+                {
+                    empty = true;
+                }
+                ranged |= comparison != ValueComparison.NE;
+                return;
+            }
+
+            if (comparison != ValueComparison.NE)
+            {
+                ranged = true;
+            }
+
+            final BigDecimal exact = toBigDecimal(value);
+            final BigInteger floor = exact.setScale(0, RoundingMode.FLOOR).toBigIntegerExact();
+            final BigInteger ceil = exact.setScale(0, RoundingMode.CEILING).toBigIntegerExact();
+            final boolean integral = floor.equals(ceil);
+
+            switch (comparison)
+            {
+                case EQ:
+                    if (integral == false) empty = true;
+                    lo = lo.max(floor);
+                    hi = hi.min(ceil);
+                    break;
+                case NE:
+                    if (integral) excluded.add(floor);
+                    break;
+                case GT:
+                    lo = lo.max(floor.add(BigInteger.ONE));
+                    break;
+                case GE:
+                    lo = lo.max(ceil);
+                    break;
+                case LT:
+                    hi = hi.min(ceil.subtract(BigInteger.ONE));
+                    break;
+                default:
+                    hi = hi.min(floor);
+                    break;
+            }
+        }
+
+        boolean isEmpty()
+        {
+            return empty || lo.compareTo(hi) > 0;
+        }
+
+        /**
+         * @return If any filter bounds the range, rather than only excluding values
+         */
+        boolean isRanged()
+        {
+            return ranged;
+        }
+
+        long lo()
+        {
+            return lo.longValue();
+        }
+
+        long hi()
+        {
+            return hi.longValue();
+        }
+
+        /**
+         * @return The sorted excluded values that fall within the range
+         */
+        long[] excluded()
+        {
+            final List<Long> inRange = new ArrayList<>();
+            for (BigInteger ex : excluded)
+            {
+                if (ex.compareTo(lo) >= 0 && ex.compareTo(hi) <= 0 && inRange.contains(ex.longValue()) == false)
+                {
+                    inRange.add(ex.longValue());
+                }
+            }
+            final long[] ret = new long[inRange.size()];
+            for (int i=0; i < ret.length; i++) ret[i] = inRange.get(i);
+            Arrays.sort(ret);
+            return ret;
+        }
+    }
+
+    /**
+     * The AND of a column's numeric filters, merged into an inclusive floating point range
+     * and a set of excluded values
+     */
+    static final class DoubleBounds
+    {
+        double lo = Double.NEGATIVE_INFINITY;
+        double hi = Double.POSITIVE_INFINITY;
+        boolean ranged;
+        private boolean empty;
+        private final List<Double> excluded = new ArrayList<>();
+
+        /**
+         * @return The merged bounds of the filters, or null if there are no filters
+         */
+        static DoubleBounds of(Collection<? extends IFilterOperator<?>> filters)
+        {
+            final DoubleBounds bounds = new DoubleBounds();
+            boolean hasFilter = false;
+
+            for (IFilterOperator<?> filter : filters)
+            {
+                if (filter == null || filter.getType() == IFilterOperator.Type.NONE)
+                {
+                    continue;
+                }
+                hasFilter = true;
+
+                final ValueComparison comparison = ValueComparison.of(filter.getType());
+                if (comparison == null)
+                {
+                    throw unsupported(filter);
+                }
+                bounds.add(comparison, numericValue(filter).doubleValue());
+            }
+
+            return hasFilter ? bounds : null;
+        }
+
+        private void add(ValueComparison comparison, double v)
+        {
+            if (comparison == ValueComparison.NE)
+            {
+                if (Double.isNaN(v) == false) excluded.add(v);
+                return;
+            }
+
+            ranged = true;
+            if (Double.isNaN(v))
+            {
+                // Nothing is equal to NaN
+                empty = true;
+                return;
+            }
+            switch (comparison)
+            {
+                case EQ: lo = Math.max(lo, v); hi = Math.min(hi, v); break;
+                // Nothing is beyond infinity, which nextUp()/nextDown() leave unchanged
+                case GT: if (v == Double.POSITIVE_INFINITY) empty = true; else lo = Math.max(lo, Math.nextUp(v)); break;
+                case GE: lo = Math.max(lo, v); break;
+                case LT: if (v == Double.NEGATIVE_INFINITY) empty = true; else hi = Math.min(hi, Math.nextDown(v)); break;
+                default: hi = Math.min(hi, v); break;
+            }
+        }
+
+        boolean isEmpty()
+        {
+            return empty || lo > hi;
+        }
+
+        double[] excluded()
+        {
+            final double[] ret = new double[excluded.size()];
+            for (int i=0; i < ret.length; i++) ret[i] = excluded.get(i);
+            return ret;
+        }
+    }
+
+    /**
+     * Maps an operator's type to the result of a compareTo() call
+     */
+    enum ValueComparison
+    {
+          EQ { @Override boolean matches(int c) { return c == 0; } }
+        , NE { @Override boolean matches(int c) { return c != 0; } }
+        , GT { @Override boolean matches(int c) { return c > 0; } }
+        , GE { @Override boolean matches(int c) { return c >= 0; } }
+        , LT { @Override boolean matches(int c) { return c < 0; } }
+        , LE { @Override boolean matches(int c) { return c <= 0; } };
+
+        abstract boolean matches(int comparison);
+
+        static ValueComparison of(IFilterOperator.Type type)
+        {
+            switch (type)
+            {
+                case EQUALS:            return EQ;
+                case NOTEQUALS:         return NE;
+                case GREATERTHAN:
+                case AFTER:             return GT;
+                case GREATERTHANEQUALS:
+                case AFTERON:           return GE;
+                case LESSTHAN:
+                case BEFORE:            return LT;
+                case LESSTHANEQUALS:
+                case BEFOREON:          return LE;
+                default:                return null;
+            }
+        }
+    }
+}
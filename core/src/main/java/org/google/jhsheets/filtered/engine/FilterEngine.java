@@ -0,0 +1,1285 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.google.jhsheets.filtered.model.FilterState;
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+
+/**
+ * Applies the filters of any number of columns to a list of rows.
+ * <br/><br/>
+ * Each column's filters are compiled by the {@link FilterCompiler} when they're set.
+ * Each filtered column is evaluated on its own into a {@link BitSet} of the rows it matches,
+ * which is cached, and the result is the AND of every column's BitSet.  When a column's filters
+ * change only that column is re-evaluated.  If its new filters are narrower than the cached ones
+ * (see {@link FilterRefinement}), only the rows it matched are checked again; if they're wider, 
+ * only the rows it excluded are checked again.
+ * <br/><br/>
+ * In column store mode, each filtered column is instead materialized into a primitive array
+ * (see {@link ColumnVector}) the first time it's filtered, and the filters are evaluated as array
+ * scans that produce a {@link BitSet} of the matching rows.  The arrays are a snapshot of the rows,
+ * so {@link #invalidate()} must be called when the rows change.
+ * <br/><br/>
+ * Columns with few distinct values (ie: enums and booleans) also get a {@link BitmapIndex} in
+ * column store mode, so evaluating them doesn't depend on the number of rows.  The bitmaps of all
+ * these columns are AND'd while compressed, and only the rows matching all of them are expanded.
+ * Numeric and date columns get a {@link SortedIndex} the first time they're filtered by a range,
+ * which finds the rows within a narrow range without scanning the column.
+ * Other high cardinality columns get a {@link PrefixIndex} the first time they're filtered with
+ * STARTSWITH or ENDSWITH, which finds the matching distinct values with a binary search.
+ * <br/><br/>
+ * Text columns can be given a {@link TrigramIndex} with {@link #indexText(Object, ValueExtractor, Executor)},
+ * in either mode.  The index is built in the background, and narrows a CONTAINS filter down to the
+ * values holding all of its trigrams.  Until it's built, the column is filtered without it.
+ * <br/><br/>
+ * Rows inserted, removed or updated in the source list are applied to the arrays, the indexes and
+ * the cached BitSets with {@link #rowsInserted(int, int)}, {@link #rowsRemoved(int, int)} and 
+ * {@link #rowsUpdated(int, int)}, which only evaluate the changed rows.  The matches of the last 
+ * evaluation are kept up to date the same way, so a filtered view of the rows can be kept in sync 
+ * with {@link #isMatch(int)} and {@link #countMatches(int, int)}.
+ * <br/><br/>
+ * Large lists can be evaluated in parallel with {@link #setParallelPool(ForkJoinPool)}: the row scans
+ * are split into chunks that are evaluated on the pool, and merged in row order.
+ * <br/><br/>
+ * The engine measures how many rows each column's filters reject, and how long they take, and evaluates
+ * the columns that reject the most rows for their cost first (see {@link #getEvaluationOrder()}).  Once the
+ * earlier columns leave few rows, the later columns only check those rows, and the rows of a changed column
+ * or of {@link #getPredicate()} are rejected by the cheapest, most selective column.
+ * <br/><br/>
+ * The results of the most recently used sets of filters are cached (see {@link #setResultCacheSize(int)}),
+ * so going back to earlier filters doesn't evaluate anything.  The cached results are kept up to date
+ * when rows are inserted, removed or updated, and are cleared by {@link #invalidate()}.
+ * <br/><br/>
+ * This class does not depend on JavaFX; columns are identified by any key object.
+ * It is not thread safe, and should only be used from a single thread; only the text indexes
+ * are built on another thread, and the chunks of a parallel scan are evaluated on the pool 
+ * while the calling thread waits.
+ *
+ * @author JHS
+ */
+public class FilterEngine<S>
+{
+    /** Number of results cached by default */
+    public static final int DEFAULT_RESULT_CACHE_SIZE = 8;
+
+    /** Filters of each filtered column */
+    private final Map<Object, ColumnFilter<S>> columnFilters = new LinkedHashMap<>();
+
+    /** Materialized values of each column, when in column store mode */
+    private final Map<Object, ColumnVector> columnVectors = new HashMap<>();
+
+    /** Bitmap indexes of the low cardinality columns, when in column store mode */
+    private final Map<Object, BitmapIndex> bitmapIndexes = new HashMap<>();
+
+    /** Sorted indexes of the numeric and date columns, when in column store mode */
+    private final Map<Object, SortedIndex> sortedIndexes = new HashMap<>();
+
+    /** Prefix and suffix indexes of the high cardinality object columns, when in column store mode */
+    private final Map<Object, PrefixIndex> prefixIndexes = new HashMap<>();
+
+    /** Trigram indexes of the text columns, in either mode */
+    private final Map<Object, TextIndexSlot<S>> textIndexes = new HashMap<>();
+
+    private List<? extends S> source = Collections.emptyList();
+
+    /** Incremented whenever the source rows change */
+    private int sourceVersion;
+    /** Number of source rows the cached data was built from, as changed by the row change notifications */
+    private int rowCount;
+
+    /** Rows matching each column's filters, as of the column's last evaluation */
+    private final Map<Object, ColumnMatches<S>> columnMatches = new HashMap<>();
+
+    /** Rows matching all the filters as of the last evaluation, or null if the source rows were invalidated */
+    private BitSet lastMatches;
+    /** Filters of the last evaluation */
+    private List<ColumnFilter<S>> lastFilters = Collections.emptyList();
+
+    /** Selectivity and cost of each filtered column's filters */
+    private final Map<Object, ColumnStats> columnStats = new HashMap<>();
+    /** Filters in the order they're evaluated in; null when they need to be sorted again */
+    private List<ColumnFilter<S>> filterOrder;
+
+    /** AND of all column predicates; null when it needs to be recompiled */
+    private Predicate<S> predicate;
+
+    /** Matches of the most recently used filters, by their signature */
+    private final ResultCache<S> resultCache = new ResultCache<>(DEFAULT_RESULT_CACHE_SIZE);
+    /** Signature of the current filters; null when it needs to be computed again */
+    private FilterSignature signature;
+
+    private boolean columnStoreEnabled;
+
+    /** Pool the row scans are split across, or null to scan on the calling thread */
+    private ForkJoinPool parallelPool;
+
+
+    /**
+     * @param source The unfiltered rows
+     */
+    public void setSource(List<? extends S> source)
+    {
+        this.source = source == null ? Collections.<S>emptyList() : source;
+        invalidate();
+    }
+
+    /**
+     * @return The unfiltered rows
+     */
+    public List<? extends S> getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Discard any data cached from the source rows.
+     * Call this when rows are added, removed or have their values changed.
+     */
+    public void invalidate()
+    {
+        clearColumnStore();
+        sourceVersion++;
+        rowCount = source.size();
+        columnMatches.clear();
+        resultCache.clear();
+        lastMatches = null;
+    }
+
+    private void clearColumnStore()
+    {
+        columnVectors.clear();
+        bitmapIndexes.clear();
+        sortedIndexes.clear();
+        prefixIndexes.clear();
+    }
+
+    /**
+     * Apply rows that were inserted into the source list to the cached data.
+     * Call this instead of {@link #invalidate()} when rows were only inserted.
+     *
+     * @param from Index of the first inserted row
+     * @param count Number of rows inserted
+     */
+    public void rowsInserted(int from, int count)
+    {
+        rowsChanged(RowChange.INSERTED, from, count);
+    }
+
+    /**
+     * Apply rows that were removed from the source list to the cached data.
+     * Call this instead of {@link #invalidate()} when rows were only removed.
+     *
+     * @param from Index the first removed row was at
+     * @param count Number of rows removed
+     */
+    public void rowsRemoved(int from, int count)
+    {
+        rowsChanged(RowChange.REMOVED, from, count);
+    }
+
+    /**
+     * Re-read rows whose values changed in the source list.
+     * Call this instead of {@link #invalidate()} when only these rows changed.
+     *
+     * @param from Index of the first updated row
+     * @param count Number of rows updated
+     */
+    public void rowsUpdated(int from, int count)
+    {
+        rowsChanged(RowChange.UPDATED, from, count);
+    }
+
+    private enum RowChange { INSERTED, REMOVED, UPDATED }
+
+    private void rowsChanged(RowChange change, int from, int count)
+    {
+        // The source list may already hold later changes of the same notification
+        final int oldSize = rowCount;
+        final int size = change == RowChange.INSERTED ? oldSize + count : change == RowChange.REMOVED ? oldSize - count : oldSize;
+        rowCount = size;
+        final List<? extends S> changed = change == RowChange.REMOVED ? Collections.<S>emptyList() : source.subList(from, from + count);
+
+        for (TextIndexSlot<S> slot : textIndexes.values())
+        {
+            final TrigramIndex index = slot.index;
+            if (index == null || index.version != sourceVersion || index.size() != oldSize)
+            {
+                continue;
+            }
+            switch (change)
+            {
+                case INSERTED:  index.insert(from, readText(changed, slot.extractor)); break;
+                case REMOVED:   index.remove(from, count); break;
+                default:        index.update(from, readText(changed, slot.extractor)); break;
+            }
+            index.version = sourceVersion + 1;
+        }
+        sourceVersion++;
+
+        final Iterator<Map.Entry<Object, ColumnVector>> it = columnVectors.entrySet().iterator();
+        while (it.hasNext())
+        {
+            final Map.Entry<Object, ColumnVector> e = it.next();
+            final Object column = e.getKey();
+            final ColumnVector vector = e.getValue();
+            final ColumnFilter<S> cf = columnFilters.get(column);
+            if (cf == null || vector.size() != oldSize)
+            {
+                it.remove();
+                bitmapIndexes.remove(column);
+                sortedIndexes.remove(column);
+                prefixIndexes.remove(column);
+                continue;
+            }
+
+            // The indexes read the rows' values from the vector, so they drop rows before the vector changes, and add them after
+            final SortedIndex sortedIndex = sortedIndexes.get(column);
+            BitmapIndex bitmapIndex = bitmapIndexes.get(column);
+            switch (change)
+            {
+                case INSERTED:
+                    vector.insert(from, changed, cf.extractor);
+                    break;
+                case REMOVED:
+                    if (sortedIndex != null) sortedIndex.rowsRemoved(from, count);
+                    if (bitmapIndex != null) bitmapIndex.rowsRemoved(from, count);
+                    vector.remove(from, count);
+                    break;
+                default:
+                    if (sortedIndex != null) sortedIndex.removeEntries(from, from + count);
+                    if (bitmapIndex != null) bitmapIndex.removeEntries(from, from + count);
+                    vector.update(from, changed, cf.extractor);
+                    break;
+            }
+
+            if (bitmapIndex != null && BitmapIndex.isIndexable(vector) == false)
+            {
+                bitmapIndexes.remove(column);
+                bitmapIndex = null;
+            }
+            switch (change)
+            {
+                case INSERTED:
+                    if (sortedIndex != null) sortedIndex.rowsInserted(from, count);
+                    if (bitmapIndex != null) bitmapIndex.rowsInserted(from, count);
+                    break;
+                case UPDATED:
+                    if (sortedIndex != null) sortedIndex.addEntries(from, from + count);
+                    if (bitmapIndex != null) bitmapIndex.addEntries(from, from + count);
+                    break;
+                default:
+                    break;
+            }
+
+            // The prefix index only holds the distinct values
+            final PrefixIndex prefixIndex = prefixIndexes.get(column);
+            if (prefixIndex != null && (vector instanceof ColumnVector.DictionaryVector == false
+                    || prefixIndex.dictionarySize() != ((ColumnVector.DictionaryVector)vector).dictionarySize))
+            {
+                prefixIndexes.remove(column);
+            }
+        }
+
+        // Only evaluate the changed rows
+        final Iterator<Map.Entry<Object, ColumnMatches<S>>> matchIt = columnMatches.entrySet().iterator();
+        while (matchIt.hasNext())
+        {
+            final Map.Entry<Object, ColumnMatches<S>> e = matchIt.next();
+            if (e.getValue().size != oldSize)
+            {
+                matchIt.remove();
+                continue;
+            }
+            final ColumnFilter<S> cf = e.getValue().filter;
+            e.setValue(new ColumnMatches<S>(cf, applyChange(change, e.getValue().rows, from, count, Collections.singletonList(cf)), size));
+        }
+
+        final Iterator<Map.Entry<FilterSignature, CachedResult<S>>> cacheIt = resultCache.entrySet().iterator();
+        while (cacheIt.hasNext())
+        {
+            final CachedResult<S> cached = cacheIt.next().getValue();
+            if (cached.size != oldSize)
+            {
+                cacheIt.remove();
+                continue;
+            }
+            cached.rows = applyChange(change, cached.rows, from, count, cached.filters);
+            cached.size = size;
+        }
+
+        if (lastMatches != null)
+        {
+            lastMatches = applyChange(change, lastMatches, from, count, lastFilters);
+        }
+    }
+
+    /**
+     * @param filters The rows set in the bits match all these filters
+     * @return The bits, with the changed rows applied
+     */
+    private BitSet applyChange(RowChange change, BitSet bits, int from, int count, List<ColumnFilter<S>> filters)
+    {
+        BitSet ret = bits;
+        switch (change)
+        {
+            case REMOVED:
+                return ColumnVector.removeBits(bits, from, count);
+            case INSERTED:
+                ret = ColumnVector.insertBits(bits, from, count);
+                break;
+            default:
+                break;
+        }
+
+        for (int i=from; i < from + count; i++)
+        {
+            final S row = source.get(i);
+            boolean match = true;
+            for (ColumnFilter<S> cf : filters)
+            {
+                if (cf.predicate.test(row) == false)
+                {
+                    match = false;
+                    break;
+                }
+            }
+            ret.set(i, match);
+        }
+        return ret;
+    }
+
+    /**
+     * @return If the matches of the last evaluation are known, and are up to date with the source rows
+     */
+    public boolean hasMatches()
+    {
+        return lastMatches != null;
+    }
+
+    /**
+     * @param row Index of a source row
+     * @return If the row matched all the filters in the last evaluation, 
+     *         or after being inserted or updated since then
+     * @throws IllegalStateException If the matches aren't known; see {@link #hasMatches()}
+     */
+    public boolean isMatch(int row)
+    {
+        if (lastMatches == null)
+        {
+            throw new IllegalStateException("The source rows haven't been evaluated");
+        }
+        return lastMatches.get(row);
+    }
+
+    /**
+     * @param from Index of the first source row to count
+     * @param to Index after the last source row to count
+     * @return The number of rows in the range that matched all the filters
+     * @throws IllegalStateException If the matches aren't known; see {@link #hasMatches()}
+     */
+    public int countMatches(int from, int to)
+    {
+        if (lastMatches == null)
+        {
+            throw new IllegalStateException("The source rows haven't been evaluated");
+        }
+        return lastMatches.get(from, to).cardinality();
+    }
+
+    /**
+     * Enable or disable column store mode.
+     * Column store mode uses more memory, but is much faster at filtering a large number of rows.
+     *
+     * @param enabled If the filtered columns should be materialized into arrays
+     */
+    public void setColumnStoreEnabled(boolean enabled)
+    {
+        this.columnStoreEnabled = enabled;
+        if (enabled == false)
+        {
+            clearColumnStore();
+        }
+    }
+
+    /**
+     * @return If the filtered columns are materialized into arrays
+     */
+    public boolean isColumnStoreEnabled()
+    {
+        return columnStoreEnabled;
+    }
+
+    /**
+     * Set the pool to evaluate the rows on in parallel.
+     * Scans of large lists are split into chunks, which are evaluated on the pool while the calling thread waits.
+     * The value extractors must then be safe to call from the pool's threads, as long as the rows aren't modified.
+     *
+     * @param pool Pool to evaluate the rows on, or null to evaluate them on the calling thread
+     */
+    public void setParallelPool(ForkJoinPool pool)
+    {
+        this.parallelPool = pool;
+    }
+
+    /**
+     * @return Pool the rows are evaluated on, or null if they're evaluated on the calling thread
+     */
+    public ForkJoinPool getParallelPool()
+    {
+        return parallelPool;
+    }
+
+    /**
+     * Set, or replace, the filters applied to a column.
+     *
+     * @param column Key identifying the column
+     * @param extractor Function used to fetch the column's value from a row; passing the same function
+     *                  again keeps the values and indexes read with it
+     * @param filters The filters applied to the column
+     */
+    public void setColumnFilter(Object column, Function<? super S, ?> extractor, Collection<? extends IFilterOperator<?>> filters)
+    {
+        setColumnFilter(column, ValueExtractor.<S>of(extractor), filters);
+    }
+
+    /**
+     * Set, or replace, the filters applied to a column.
+     * Use a primitive {@link ValueExtractor} to filter numeric columns without boxing.
+     *
+     * @param column Key identifying the column
+     * @param extractor Fetches the column's value from a row
+     * @param filters The filters applied to the column
+     */
+    public void setColumnFilter(Object column, ValueExtractor<? super S> extractor, Collection<? extends IFilterOperator<?>> filters)
+    {
+        final ColumnFilter<S> filter = ColumnFilter.compile(column, extractor, filters);
+        final ColumnFilter<S> previous = filter == null ? columnFilters.remove(column) : columnFilters.put(column, filter);
+
+        // A different extractor may fetch different values
+        if (previous != null && previous.extractor.equals(extractor) == false)
+        {
+            columnVectors.remove(column);
+            bitmapIndexes.remove(column);
+            sortedIndexes.remove(column);
+            prefixIndexes.remove(column);
+            columnMatches.remove(column);
+            columnStats.remove(column);
+        }
+        if (filter != null || previous != null)
+        {
+            predicate = null;
+            filterOrder = null;
+            signature = null;
+        }
+    }
+
+    /**
+     * Set, or remove, the filters applied to a column from a snapshot of its filter model.
+     *
+     * @param column Key identifying the column
+     * @param extractor Fetches the column's value from a row
+     * @param state The column's filters, which are removed if they don't filter the column
+     */
+    public void setColumnFilter(Object column, ValueExtractor<? super S> extractor, FilterState<?> state)
+    {
+        if (state.isFiltered())
+        {
+            setColumnFilter(column, extractor, state.getFilters());
+        }
+        else
+        {
+            removeColumnFilter(column);
+        }
+    }
+
+    /**
+     * Remove all filters from a column
+     *
+     * @param column Key identifying the column
+     */
+    public void removeColumnFilter(Object column)
+    {
+        if (columnFilters.remove(column) != null)
+        {
+            predicate = null;
+            filterOrder = null;
+            signature = null;
+            columnMatches.remove(column);
+            columnStats.remove(column);
+        }
+    }
+
+    /**
+     * Remove all filters from all columns
+     */
+    public void clearColumnFilters()
+    {
+        columnFilters.clear();
+        clearColumnStore();
+        predicate = null;
+        filterOrder = null;
+        signature = null;
+        columnMatches.clear();
+        columnStats.clear();
+        lastMatches = null;
+    }
+
+    /**
+     * Set how many of the most recently used sets of filters have their results cached.
+     * Each result takes a bit per source row.
+     *
+     * @param size Number of results to cache, or 0 to not cache any
+     */
+    public void setResultCacheSize(int size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException("Invalid result cache size: " + size);
+        }
+        resultCache.capacity = size;
+        while (resultCache.size() > size)
+        {
+            resultCache.remove(resultCache.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * @return Number of the most recently used sets of filters that have their results cached
+     */
+    public int getResultCacheSize()
+    {
+        return resultCache.capacity;
+    }
+
+    private FilterSignature getSignature()
+    {
+        if (signature == null)
+        {
+            signature = FilterSignature.of(columnFilters.values());
+        }
+        return signature;
+    }
+
+    /**
+     * @return If any column has a filter applied
+     */
+    public boolean isFiltered()
+    {
+        return columnFilters.isEmpty() == false;
+    }
+
+    /**
+     * Build a trigram index of a text column, which speeds up its CONTAINS filters.
+     * The rows are copied on the calling thread, and their values are read and indexed by the executor,
+     * so the extractor must be safe to call from the executor's thread.
+     * The index is rebuilt the same way whenever the source rows are invalidated.
+     *
+     * @param column Key identifying the column
+     * @param extractor Fetches the column's value from a row; the index holds the value's toString()
+     * @param executor Runs the index builds
+     */
+    public void indexText(Object column, ValueExtractor<? super S> extractor, Executor executor)
+    {
+        TextIndexSlot<S> slot = textIndexes.get(column);
+        if (slot == null || slot.extractor.equals(extractor) == false || slot.executor != executor)
+        {
+            slot = new TextIndexSlot<>(extractor, executor);
+            textIndexes.put(column, slot);
+        }
+        refreshTextIndex(slot);
+    }
+
+    /**
+     * Stop indexing a text column
+     *
+     * @param column Key identifying the column
+     */
+    public void removeTextIndex(Object column)
+    {
+        textIndexes.remove(column);
+    }
+
+    /**
+     * @return If the column's trigram index is built and up to date with the source rows
+     */
+    public boolean isTextIndexReady(Object column)
+    {
+        final TextIndexSlot<S> slot = textIndexes.get(column);
+        return slot != null && isCurrent(slot.index);
+    }
+
+    private boolean isCurrent(TrigramIndex index)
+    {
+        return index != null && index.version == sourceVersion && index.size() == source.size();
+    }
+
+    /**
+     * Start rebuilding the index if it's out of date, and isn't already being built
+     */
+    private void refreshTextIndex(final TextIndexSlot<S> slot)
+    {
+        if (slot.building || isCurrent(slot.index))
+        {
+            return;
+        }
+
+        // Reading every row's text takes as long as indexing it, so only the copy is made on this thread
+        final List<S> rows = new ArrayList<S>(source);
+        final int version = sourceVersion;
+        slot.building = true;
+        slot.executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    slot.index = TrigramIndex.build(readText(rows, slot.extractor), version);
+                }
+                finally
+                {
+                    slot.building = false;
+                }
+            }
+        });
+    }
+
+    private static <S> String[] readText(List<? extends S> rows, ValueExtractor<? super S> extractor)
+    {
+        final String[] values = new String[rows.size()];
+        for (int i=0; i < values.length; i++)
+        {
+            final Object value = extractor.apply(rows.get(i));
+            values[i] = value == null ? null : value.toString();
+        }
+        return values;
+    }
+
+    /**
+     * @return Keys of the filtered columns, in the order their filters are evaluated in
+     */
+    public List<Object> getEvaluationOrder()
+    {
+        final List<ColumnFilter<S>> order = getFilterOrder();
+        final List<Object> columns = new ArrayList<>(order.size());
+        for (ColumnFilter<S> cf : order)
+        {
+            columns.add(cf.column);
+        }
+        return columns;
+    }
+
+    /**
+     * @return The filters, sorted so the ones rejecting the most rows for their cost come first
+     */
+    private List<ColumnFilter<S>> getFilterOrder()
+    {
+        if (filterOrder == null)
+        {
+            final List<ColumnFilter<S>> order = new ArrayList<>(columnFilters.values());
+            Collections.sort(order, new Comparator<ColumnFilter<S>>()
+            {
+                @Override
+                public int compare(ColumnFilter<S> a, ColumnFilter<S> b)
+                {
+                    return Double.compare(rank(a), rank(b));
+                }
+            });
+            filterOrder = order;
+        }
+        return filterOrder;
+    }
+
+    private double rank(ColumnFilter<S> cf)
+    {
+        final ColumnStats stats = columnStats.get(cf.column);
+        return stats == null ? 0 : stats.rank();
+    }
+
+    private void record(ColumnFilter<S> cf, int rows, int matched, long nanos)
+    {
+        ColumnStats stats = columnStats.get(cf.column);
+        if (stats == null)
+        {
+            stats = new ColumnStats();
+            columnStats.put(cf.column, stats);
+        }
+        stats.record(rows, matched, nanos);
+    }
+
+    /**
+     * @return Predicate accepting the rows that match the filters of every column
+     */
+    public Predicate<S> getPredicate()
+    {
+        if (predicate == null)
+        {
+            if (columnFilters.isEmpty())
+            {
+                predicate = new Predicate<S>()
+                {
+                    @Override
+                    public boolean test(S row)
+                    {
+                        return true;
+                    }
+                };
+            }
+            else
+            {
+                final List<Predicate<S>> predicates = new ArrayList<>(columnFilters.size());
+                for (ColumnFilter<S> cf : getFilterOrder())
+                {
+                    predicates.add(cf.predicate);
+                }
+                predicate = FilterCompiler.and(predicates);
+            }
+        }
+        return predicate;
+    }
+
+    /**
+     * @return The indexes of the source rows that match all the filters
+     */
+    public BitSet evaluate()
+    {
+        return evaluate(null);
+    }
+
+    /**
+     * Evaluate the filters, unless the evaluation is no longer wanted.
+     * The columns evaluated before cancelling are still cached, and are reused by the next evaluation.
+     *
+     * @param cancelled Checked before evaluating each column, or null if the evaluation can't be cancelled
+     * @return The indexes of the source rows that match all the filters, or null if cancelled
+     */
+    public BitSet evaluate(BooleanSupplier cancelled)
+    {
+        final List<? extends S> rows = source;
+        rowCount = rows.size();
+        for (TextIndexSlot<S> slot : textIndexes.values())
+        {
+            refreshTextIndex(slot);
+        }
+
+        final boolean cacheable = columnFilters.isEmpty() == false && resultCache.capacity > 0;
+        if (cacheable)
+        {
+            final CachedResult<S> cached = resultCache.get(getSignature());
+            if (cached != null && cached.size == rows.size())
+            {
+                lastMatches = (BitSet)cached.rows.clone();
+                lastFilters = getFilterOrder();
+                return (BitSet)cached.rows.clone();
+            }
+        }
+
+        final int n = rows.size();
+        final List<ColumnFilter<S>> order = getFilterOrder();
+
+        // Columns whose cached matches are current cost nothing, so they narrow the rows down first
+        BitSet matches = null;
+        final List<ColumnFilter<S>> pending = new ArrayList<>(order.size());
+        for (ColumnFilter<S> cf : order)
+        {
+            final ColumnMatches<S> cached = columnMatches.get(cf.column);
+            if (cached != null && cached.size == n && cached.filter == cf)
+            {
+                matches = and(matches, cached.rows);
+            }
+            else
+            {
+                pending.add(cf);
+            }
+        }
+
+        // Columns with a bitmap index are AND'd while compressed, and only the rows matching all of them are expanded
+        if (columnStoreEnabled)
+        {
+            CompressedBitmap indexed = null;
+            final Iterator<ColumnFilter<S>> it = pending.iterator();
+            while (it.hasNext() && (indexed == null || indexed.isEmpty() == false))
+            {
+                final ColumnFilter<S> cf = it.next();
+                final TextIndexSlot<S> slot = textIndexes.get(cf.column);
+                final BitmapIndex bitmapIndex = slot != null && isCurrent(slot.index) ? null : getBitmapIndex(cf, rows);
+                if (bitmapIndex == null)
+                {
+                    continue;
+                }
+                if (cancelled != null && cancelled.getAsBoolean())
+                {
+                    return null;
+                }
+                final long start = System.nanoTime();
+                final CompressedBitmap found = bitmapIndex.lookup(cf.filters);
+                indexed = indexed == null ? found : indexed.and(found);
+                record(cf, n, found.cardinality(), System.nanoTime() - start);
+                // A lookup costs less than keeping the column's matches up to date
+                columnMatches.remove(cf.column);
+                it.remove();
+            }
+            if (indexed != null)
+            {
+                matches = and(matches, indexed.toBitSet());
+            }
+        }
+
+        for (ColumnFilter<S> cf : pending)
+        {
+            if (cancelled != null && cancelled.getAsBoolean())
+            {
+                return null;
+            }
+            if (matches != null && matches.isEmpty())
+            {
+                break;
+            }
+            final long start = System.nanoTime();
+            final int candidates = matches == null ? n : matches.cardinality();
+            if (candidates < n >>> 3)
+            {
+                // Only check the few rows left; the column's matches aren't cached, as the other rows weren't checked
+                refineColumn(cf, rows, matches);
+                record(cf, candidates, matches.cardinality(), System.nanoTime() - start);
+            }
+            else
+            {
+                final BitSet columnRows = getColumnMatches(cf, rows);
+                record(cf, n, columnRows.cardinality(), System.nanoTime() - start);
+                matches = and(matches, columnRows);
+            }
+        }
+        if (matches == null)
+        {
+            matches = ColumnVector.all(n);
+        }
+
+        // Sort the columns by what was just measured
+        filterOrder = null;
+        if (getFilterOrder().equals(order) == false)
+        {
+            predicate = null;
+        }
+
+        if (cacheable)
+        {
+            resultCache.put(getSignature(), new CachedResult<S>(filterOrder, (BitSet)matches.clone(), n));
+        }
+        lastMatches = (BitSet)matches.clone();
+        lastFilters = filterOrder;
+        return matches;
+    }
+
+    /**
+     * @param matches The rows matched so far, which are modified, or null if none were evaluated
+     * @param rows The rows matching another column
+     * @return The rows matching both
+     */
+    private static BitSet and(BitSet matches, BitSet rows)
+    {
+        if (matches == null)
+        {
+            return (BitSet)rows.clone();
+        }
+        matches.and(rows);
+        return matches;
+    }
+
+    /**
+     * @return The rows matching the column's filters, only re-evaluating the rows that 
+     *         may have changed since the column was last evaluated
+     */
+    private BitSet getColumnMatches(ColumnFilter<S> cf, List<? extends S> rows)
+    {
+        final int n = rows.size();
+        final ColumnMatches<S> cached = columnMatches.get(cf.column);
+        final BitSet bits;
+        if (cached == null || cached.size != n)
+        {
+            bits = evaluateColumn(cf, rows);
+        }
+        else if (cached.filter == cf)
+        {
+            return cached.rows;
+        }
+        else
+        {
+            final boolean narrower = FilterRefinement.isNarrower(cf.filters, cached.filter.filters);
+            final boolean wider = FilterRefinement.isNarrower(cached.filter.filters, cf.filters);
+            if (narrower && wider)
+            {
+                bits = cached.rows;
+            }
+            else if (narrower)
+            {
+                // Only the rows that matched can still match
+                bits = cached.rows;
+                refineColumn(cf, rows, bits);
+            }
+            else if (wider)
+            {
+                // Only the rows that were excluded can start matching
+                bits = ColumnVector.all(n);
+                bits.andNot(cached.rows);
+                refineColumn(cf, rows, bits);
+                bits.or(cached.rows);
+            }
+            else
+            {
+                bits = evaluateColumn(cf, rows);
+            }
+        }
+
+        columnMatches.put(cf.column, new ColumnMatches<S>(cf, bits, n));
+        return bits;
+    }
+
+    /**
+     * Evaluate a column's filters for every row, using the column's indexes when they help
+     */
+    private BitSet evaluateColumn(ColumnFilter<S> cf, List<? extends S> rows)
+    {
+        final int n = rows.size();
+        final TextIndexSlot<S> slot = textIndexes.get(cf.column);
+        final TrigramIndex textIndex = slot == null ? null : slot.index;
+        if (isCurrent(textIndex))
+        {
+            final BitSet found = textIndex.lookup(cf.filters);
+            if (found != null)
+            {
+                return found;
+            }
+        }
+
+        if (columnStoreEnabled == false)
+        {
+            final Predicate<S> p = cf.predicate;
+            return new ParallelScan()
+            {
+                @Override
+                void scan(long[] words, int from, int to)
+                {
+                    for (int i=from; i < to; i++)
+                    {
+                        if (p.test(rows.get(i))) words[i >>> 6] |= 1L << i;
+                    }
+                }
+            }.run(n, parallelPool);
+        }
+
+        final BitmapIndex bitmapIndex = getBitmapIndex(cf, rows);
+        if (bitmapIndex != null)
+        {
+            return bitmapIndex.lookup(cf.filters).toBitSet();
+        }
+
+        // Setting the bits of a range's rows in random order is slower than scanning, unless the range is narrow
+        final SortedIndex sortedIndex = getSortedIndex(cf, rows);
+        final BitSet range = sortedIndex == null ? null : sortedIndex.lookup(cf.filters, n >>> 3);
+        if (range != null)
+        {
+            return range;
+        }
+
+        final PrefixIndex prefixIndex = getPrefixIndex(cf, rows);
+        final boolean[] codes = prefixIndex == null ? null : prefixIndex.lookup(cf.filters);
+        if (codes != null)
+        {
+            return ((ColumnVector.DictionaryVector)getColumnVector(cf, rows)).rowsWithCodes(codes, parallelPool);
+        }
+
+        return getColumnVector(cf, rows).scan(cf.filters, parallelPool);
+    }
+
+    /**
+     * Clear the rows that don't match the column's filters; only the rows already set are evaluated.
+     * Once few rows remain it's cheaper to check each of them than to scan the whole array.
+     */
+    private void refineColumn(ColumnFilter<S> cf, List<? extends S> rows, BitSet matches)
+    {
+        if (columnStoreEnabled)
+        {
+            final ColumnVector vector = getColumnVector(cf, rows);
+            if (matches.cardinality() < rows.size() >>> 3)
+            {
+                vector.refine(cf.filters, matches);
+            }
+            else
+            {
+                matches.and(vector.scan(cf.filters, parallelPool));
+            }
+            return;
+        }
+
+        final Predicate<S> p = cf.predicate;
+        if (parallelPool == null)
+        {
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1))
+            {
+                if (p.test(rows.get(i)) == false) matches.clear(i);
+            }
+            return;
+        }
+
+        // The chunks only read the current matches, and set the rows that still match in their own words
+        matches.and(new ParallelScan()
+        {
+            @Override
+            void scan(long[] words, int from, int to)
+            {
+                for (int i = matches.nextSetBit(from); i >= 0 && i < to; i = matches.nextSetBit(i + 1))
+                {
+                    if (p.test(rows.get(i))) words[i >>> 6] |= 1L << i;
+                }
+            }
+        }.run(rows.size(), parallelPool));
+    }
+
+    /**
+     * @return The column's bitmap index, or null if it has too many distinct values to be indexed
+     */
+    private BitmapIndex getBitmapIndex(ColumnFilter<S> cf, List<? extends S> rows)
+    {
+        final ColumnVector vector = getColumnVector(cf, rows);
+        if (BitmapIndex.isIndexable(vector) == false)
+        {
+            return null;
+        }
+
+        BitmapIndex index = bitmapIndexes.get(cf.column);
+        if (index == null)
+        {
+            index = BitmapIndex.build((ColumnVector.DictionaryVector)vector);
+            bitmapIndexes.put(cf.column, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return The column's sorted index, or null if it isn't a numeric or date column filtered by a range
+     */
+    private SortedIndex getSortedIndex(ColumnFilter<S> cf, List<? extends S> rows)
+    {
+        final ColumnVector vector = getColumnVector(cf, rows);
+        if (SortedIndex.isIndexable(vector) == false)
+        {
+            return null;
+        }
+
+        SortedIndex index = sortedIndexes.get(cf.column);
+        if (index == null)
+        {
+            if (isRanged(cf.filters) == false)
+            {
+                return null;
+            }
+            index = SortedIndex.build(vector);
+            sortedIndexes.put(cf.column, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return The column's prefix index, or null if it isn't a dictionary encoded column filtered by STARTSWITH or ENDSWITH
+     */
+    private PrefixIndex getPrefixIndex(ColumnFilter<S> cf, List<? extends S> rows)
+    {
+        final ColumnVector vector = getColumnVector(cf, rows);
+        if (PrefixIndex.isIndexable(vector) == false)
+        {
+            return null;
+        }
+
+        PrefixIndex index = prefixIndexes.get(cf.column);
+        if (index == null)
+        {
+            if (hasType(cf.filters, IFilterOperator.Type.STARTSWITH) == false && hasType(cf.filters, IFilterOperator.Type.ENDSWITH) == false)
+            {
+                return null;
+            }
+            index = PrefixIndex.build((ColumnVector.DictionaryVector)vector);
+            prefixIndexes.put(cf.column, index);
+        }
+        return index;
+    }
+
+    private static boolean hasType(Collection<? extends IFilterOperator<?>> filters, IFilterOperator.Type type)
+    {
+        for (IFilterOperator<?> filter : filters)
+        {
+            if (filter != null && filter.getType() == type)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return If any of the filters bounds the values, rather than only excluding values
+     */
+    private static boolean isRanged(Collection<? extends IFilterOperator<?>> filters)
+    {
+        for (IFilterOperator<?> filter : filters)
+        {
+            if (filter != null && filter.getType() != IFilterOperator.Type.NONE && filter.getType() != IFilterOperator.Type.NOTEQUALS)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ColumnVector getColumnVector(ColumnFilter<S> cf, List<? extends S> rows)
+    {
+        ColumnVector vector = columnVectors.get(cf.column);
+        if (vector == null || vector.size() != rows.size())
+        {
+            vector = ColumnVector.materialize(rows, cf.extractor, cf.filters);
+            columnVectors.put(cf.column, vector);
+            bitmapIndexes.remove(cf.column);
+            sortedIndexes.remove(cf.column);
+            prefixIndexes.remove(cf.column);
+        }
+        return vector;
+    }
+
+    /**
+     * @return The rows of the source list that match all the filters, in source order
+     */
+    public List<S> filter()
+    {
+        final List<? extends S> rows = source;
+        if (isFiltered() == false)
+        {
+            // Still evaluated, so the matches are known
+            evaluate();
+            return new ArrayList<S>(rows);
+        }
+
+        final BitSet matches = evaluate();
+        final List<S> ret = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1))
+        {
+            ret.add(rows.get(i));
+        }
+        return ret;
+    }
+
+    /**
+     * A text column's trigram index, which is replaced by the executor when a build completes
+     */
+    private static final class TextIndexSlot<S>
+    {
+        final ValueExtractor<? super S> extractor;
+        final Executor executor;
+        volatile TrigramIndex index;
+        volatile boolean building;
+
+        TextIndexSlot(ValueExtractor<? super S> extractor, Executor executor)
+        {
+            this.extractor = extractor;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * The matches of the most recently used filters
+     */
+    private static final class ResultCache<S> extends LinkedHashMap<FilterSignature, CachedResult<S>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        int capacity;
+
+        ResultCache(int capacity)
+        {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<FilterSignature, CachedResult<S>> eldest)
+        {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * The rows that matched a set of filters, kept up to date as rows change
+     */
+    private static final class CachedResult<S>
+    {
+        /** The filters the rows were evaluated with */
+        final List<ColumnFilter<S>> filters;
+        BitSet rows;
+        /** Number of source rows the bits are for */
+        int size;
+
+        CachedResult(List<ColumnFilter<S>> filters, BitSet rows, int size)
+        {
+            this.filters = filters;
+            this.rows = rows;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The rows that matched a column's filters
+     */
+    private static final class ColumnMatches<S>
+    {
+        /** The filters the rows were evaluated with */
+        final ColumnFilter<S> filter;
+        final BitSet rows;
+        /** Number of source rows when evaluated */
+        final int size;
+
+        ColumnMatches(ColumnFilter<S> filter, BitSet rows, int size)
+        {
+            this.filter = filter;
+            this.rows = rows;
+            this.size = size;
+        }
+    }
+}
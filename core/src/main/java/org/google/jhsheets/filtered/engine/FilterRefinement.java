@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.google.jhsheets.filtered.operators.BooleanOperator;
+import org.google.jhsheets.filtered.operators.DateOperator;
+import org.google.jhsheets.filtered.operators.EnumOperator;
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.operators.NumberOperator;
+import org.google.jhsheets.filtered.operators.StringOperator;
+
+/**
+ * Determines if a column's new filters are a refinement of its old filters.
+ * <br/><br/>
+ * When the new filters are narrower (ie: CONTAINS "ab" became CONTAINS "abc", or a range shrank),
+ * the new matches are a subset of the old matches, and only the old matches need to be re-evaluated.
+ * When they are wider, the new matches are a superset, and only the rows that were excluded need
+ * to be re-evaluated.
+ * <br/><br/>
+ * The checks are conservative: filters that can't be proven to be narrower are treated as unrelated.
+ *
+ * @author JHS
+ */
+final class FilterRefinement
+{
+    private FilterRefinement()
+    {
+    }
+
+    /**
+     * @param narrower The filters that may be narrower
+     * @param wider The filters that may be wider
+     * @return If every value matching the narrower filters also matches the wider filters
+     */
+    static boolean isNarrower(Collection<? extends IFilterOperator<?>> narrower, Collection<? extends IFilterOperator<?>> wider)
+    {
+        final List<IFilterOperator<?>> narrowFilters = new ArrayList<>();
+        final List<EnumOperator<?>> narrowEnums = new ArrayList<>();
+        split(narrower, narrowFilters, narrowEnums);
+
+        final List<IFilterOperator<?>> wideFilters = new ArrayList<>();
+        final List<EnumOperator<?>> wideEnums = new ArrayList<>();
+        split(wider, wideFilters, wideEnums);
+
+        // Enum filters are OR'd; the narrower filters must accept a subset of the values
+        if (wideEnums.isEmpty() == false && (narrowEnums.isEmpty() || EnumValues.of(wideEnums).containsAll(EnumValues.of(narrowEnums)) == false))
+        {
+            return false;
+        }
+
+        // All other filters are AND'd; each wider filter must be implied by one of the narrower filters
+        for (IFilterOperator<?> wide : wideFilters)
+        {
+            boolean implied = false;
+            for (IFilterOperator<?> narrow : narrowFilters)
+            {
+                if (implies(narrow, wide))
+                {
+                    implied = true;
+                    break;
+                }
+            }
+            if (implied == false)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void split(Collection<? extends IFilterOperator<?>> filters, List<IFilterOperator<?>> anded, List<EnumOperator<?>> enums)
+    {
+        for (IFilterOperator<?> filter : filters)
+        {
+            if (filter == null || filter.getType() == IFilterOperator.Type.NONE)
+            {
+                continue;
+            }
+            if (filter instanceof EnumOperator)
+            {
+                enums.add((EnumOperator<?>)filter);
+            }
+            else
+            {
+                anded.add(filter);
+            }
+        }
+    }
+
+    /**
+     * The values accepted by a column's OR'd {@link EnumOperator}'s: either only the listed values,
+     * or every value except the listed values
+     */
+    private static final class EnumValues
+    {
+        final Set<Object> values;
+        final boolean complement;
+        /** If an operator's type isn't known, so nothing can be proven */
+        final boolean unknown;
+
+        private EnumValues(Set<Object> values, boolean complement, boolean unknown)
+        {
+            this.values = values;
+            this.complement = complement;
+            this.unknown = unknown;
+        }
+
+        static EnumValues of(List<EnumOperator<?>> filters)
+        {
+            final Set<Object> accepted = new HashSet<>();
+            Set<Object> excluded = null;
+            for (EnumOperator<?> filter : filters)
+            {
+                switch (filter.getType())
+                {
+                    case EQUALS:
+                        accepted.add(filter.getValue());
+                        break;
+                    case IN:
+                        accepted.addAll(listed(filter));
+                        break;
+                    case NOTIN:
+                        // Values excluded by every NOTIN operator
+                        if (excluded == null)
+                        {
+                            excluded = listed(filter);
+                        }
+                        else
+                        {
+                            excluded.retainAll(listed(filter));
+                        }
+                        break;
+                    default:
+                        return new EnumValues(accepted, false, true);
+                }
+            }
+            if (excluded == null)
+            {
+                return new EnumValues(accepted, false, false);
+            }
+            excluded.removeAll(accepted);
+            return new EnumValues(excluded, true, false);
+        }
+
+        /**
+         * @return The values of an IN or NOTIN operator, with null if it's listed rather than held apart
+         */
+        private static Set<Object> listed(EnumOperator<?> filter)
+        {
+            final Set<Object> listed = new HashSet<Object>(filter.getValues());
+            if (filter.matchesNull() == (filter.getType() == IFilterOperator.Type.IN))
+            {
+                listed.add(null);
+            }
+            return listed;
+        }
+
+        /**
+         * @return If every value accepted by the other values is accepted by these
+         */
+        boolean containsAll(EnumValues other)
+        {
+            if (unknown || other.unknown)
+            {
+                return false;
+            }
+            if (complement)
+            {
+                return other.complement ? other.values.containsAll(values) : Collections.disjoint(values, other.values);
+            }
+            // The values a complement accepts aren't known
+            return other.complement == false && values.containsAll(other.values);
+        }
+    }
+
+    /**
+     * @return If every value matching filter a also matches filter b
+     */
+    static boolean implies(IFilterOperator<?> a, IFilterOperator<?> b)
+    {
+        if (a.getValue() == null || b.getValue() == null)
+        {
+            return a.getType() == b.getType() && a.getClass() == b.getClass() && a.getValue() == b.getValue();
+        }
+
+        if (a instanceof StringOperator && b instanceof StringOperator)
+        {
+            return impliesText(a.getType(), (String)a.getValue(), b);
+        }
+        if (a instanceof NumberOperator && b instanceof NumberOperator)
+        {
+            final Number av = (Number)a.getValue();
+            final Number bv = (Number)b.getValue();
+            // Numbers of different types may not compare exactly
+            // NaN isn't ordered relative to any value
+            if (av.getClass() != bv.getClass() || FilterCompiler.isNaN(av) || FilterCompiler.isNaN(bv))
+            {
+                return false;
+            }
+            return impliesComparison(a.getType(), b.getType(), FilterCompiler.compareNumbers(av, bv));
+        }
+        if (a instanceof DateOperator && b instanceof DateOperator)
+        {
+            final long c = Long.compare(((Date)a.getValue()).getTime(), ((Date)b.getValue()).getTime());
+            return impliesComparison(a.getType(), b.getType(), (int)c);
+        }
+        if (a instanceof BooleanOperator && b instanceof BooleanOperator)
+        {
+            return a.getType() == b.getType();
+        }
+        return false;
+    }
+
+    private static boolean impliesText(IFilterOperator.Type a, String av, IFilterOperator<?> b)
+    {
+        final String bv = (String)b.getValue();
+        if (a == IFilterOperator.Type.EQUALS)
+        {
+            // A row matching EQUALS has exactly the value; check if b accepts that value
+            return FilterCompiler.compileValuePredicate(Collections.singletonList(b)).test(av);
+        }
+        if (a != b.getType())
+        {
+            return a == IFilterOperator.Type.STARTSWITH && b.getType() == IFilterOperator.Type.CONTAINS && av.contains(bv)
+                || a == IFilterOperator.Type.ENDSWITH && b.getType() == IFilterOperator.Type.CONTAINS && av.contains(bv);
+        }
+        switch (a)
+        {
+            case CONTAINS:      return av.contains(bv);
+            case STARTSWITH:    return av.startsWith(bv);
+            case ENDSWITH:      return av.endsWith(bv);
+            default:            return av.equals(bv);
+        }
+    }
+
+    /**
+     * @param a Comparison of the implying filter
+     * @param b Comparison of the implied filter
+     * @param c The result of comparing a's value to b's value
+     */
+    private static boolean impliesComparison(IFilterOperator.Type a, IFilterOperator.Type b, int c)
+    {
+        final FilterCompiler.ValueComparison ca = FilterCompiler.ValueComparison.of(a);
+        final FilterCompiler.ValueComparison cb = FilterCompiler.ValueComparison.of(b);
+        if (ca == null || cb == null)
+        {
+            return false;
+        }
+
+        switch (cb)
+        {
+            case EQ:
+                return ca == FilterCompiler.ValueComparison.EQ && c == 0;
+            case NE:
+                switch (ca)
+                {
+                    case NE: return c == 0;
+                    case EQ: return c != 0;
+                    case GT: return c >= 0;
+                    case GE: return c > 0;
+                    case LT: return c <= 0;
+                    default: return c < 0;
+                }
+            case GT:
+                return (ca == FilterCompiler.ValueComparison.GT && c >= 0)
+                    || ((ca == FilterCompiler.ValueComparison.GE || ca == FilterCompiler.ValueComparison.EQ) && c > 0);
+            case GE:
+                return (ca == FilterCompiler.ValueComparison.GT || ca == FilterCompiler.ValueComparison.GE || ca == FilterCompiler.ValueComparison.EQ) && c >= 0;
+            case LT:
+                return (ca == FilterCompiler.ValueComparison.LT && c <= 0)
+                    || ((ca == FilterCompiler.ValueComparison.LE || ca == FilterCompiler.ValueComparison.EQ) && c < 0);
+            default:
+                return (ca == FilterCompiler.ValueComparison.LT || ca == FilterCompiler.ValueComparison.LE || ca == FilterCompiler.ValueComparison.EQ) && c <= 0;
+        }
+    }
+}
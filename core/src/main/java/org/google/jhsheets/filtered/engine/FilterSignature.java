@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+
+/**
+ * Identifies a set of column filters by value, so the same filters give an equal signature
+ * however they were created, and in whatever order the columns were filtered.
+ * <br/><br/>
+ * Each column is identified by its key and by its value extractor, and its filters
+ * by their {@link IFilterOperator}s, which are equal when they have the same type and value.
+ *
+ * @author JHS
+ */
+final class FilterSignature
+{
+    private final Map<Object, List<Object>> columns;
+    private final int hash;
+
+
+    private FilterSignature(Map<Object, List<Object>> columns)
+    {
+        this.columns = columns;
+        this.hash = columns.hashCode();
+    }
+
+    /**
+     * @param filters The filters of every filtered column
+     * @return The signature of the filters
+     */
+    static FilterSignature of(Collection<? extends ColumnFilter<?>> filters)
+    {
+        final Map<Object, List<Object>> columns = new HashMap<>();
+        for (ColumnFilter<?> cf : filters)
+        {
+            final List<Object> key = new ArrayList<Object>(cf.filters.size() + 1);
+            key.add(cf.extractor);
+            key.addAll(cf.filters);
+            columns.put(cf.column, key);
+        }
+        return new FilterSignature(columns);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+        if (obj instanceof FilterSignature == false)
+        {
+            return false;
+        }
+        final FilterSignature other = (FilterSignature)obj;
+        return hash == other.hash && columns.equals(other.columns);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scans a range of rows into a {@link BitSet}, optionally splitting the rows into chunks 
+ * that are scanned in parallel on a {@link ForkJoinPool}.
+ * <br/><br/>
+ * The chunks start on a multiple of 64 rows, so each chunk sets its own words of the bits,
+ * and the chunks are merged in row order without any copying or locking.
+ *
+ * @author JHS
+ */
+abstract class ParallelScan
+{
+    /** Number of rows below which a range isn't split any further */
+    static final int CHUNK_SIZE = 1 << 14;
+
+    /**
+     * Set the bits of the matching rows in the range.
+     * Scans of different ranges may run concurrently; each only writes the words of its own range.
+     *
+     * @param words The bits being set, as in {@link BitSet#toLongArray()}
+     * @param from First row to scan; always a multiple of 64
+     * @param to Row after the last row to scan
+     */
+    abstract void scan(long[] words, int from, int to);
+
+    /**
+     * @param n Number of rows
+     * @param pool Pool to scan the rows on, or null to scan them on the calling thread
+     * @return The matching rows
+     */
+    final BitSet run(int n, ForkJoinPool pool)
+    {
+        final long[] words = new long[(n + 63) >>> 6];
+        if (pool == null || n < CHUNK_SIZE * 2)
+        {
+            scan(words, 0, n);
+        }
+        else
+        {
+            pool.invoke(new Chunk(words, 0, n));
+        }
+        return BitSet.valueOf(words);
+    }
+
+    private final class Chunk extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] words;
+        private final int from;
+        private final int to;
+
+        Chunk(long[] words, int from, int to)
+        {
+            this.words = words;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= CHUNK_SIZE)
+            {
+                scan(words, from, to);
+                return;
+            }
+            // Split on a word boundary
+            final int mid = ((from + to) >>> 1) & ~63;
+            invokeAll(new Chunk(words, from, mid), new Chunk(words, mid, to));
+        }
+    }
+}
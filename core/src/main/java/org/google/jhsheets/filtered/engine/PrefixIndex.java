@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.function.Predicate;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+
+/**
+ * The distinct values of a dictionary encoded column, sorted by their text, and by their reversed text.
+ * <br/><br/>
+ * The values starting with a string are a contiguous run of the sorted values, so a 
+ * {@link IFilterOperator.Type#STARTSWITH} filter is resolved with two binary searches.
+ * Likewise, a {@link IFilterOperator.Type#ENDSWITH} filter is resolved as a prefix search
+ * of the reversed values.  Each order is only sorted the first time it's needed.
+ * <br/><br/>
+ * The index stays valid for as long as the column's dictionary doesn't grow.
+ *
+ * @author JHS
+ */
+final class PrefixIndex
+{
+    /** Text of each dictionary code, or null for a null value */
+    private final String[] values;
+    /** The codes of the non-null values, sorted by their text */
+    private int[] byPrefix;
+    /** The text of each value, reversed */
+    private String[] reversed;
+    /** The codes of the non-null values, sorted by their reversed text */
+    private int[] bySuffix;
+
+
+    private PrefixIndex(String[] values)
+    {
+        this.values = values;
+    }
+
+    /**
+     * @return If the column is dictionary encoded
+     */
+    static boolean isIndexable(ColumnVector vector)
+    {
+        return vector instanceof ColumnVector.DictionaryVector;
+    }
+
+    static PrefixIndex build(ColumnVector.DictionaryVector vector)
+    {
+        final String[] values = new String[vector.dictionarySize];
+        for (int c=0; c < values.length; c++)
+        {
+            final Object value = vector.dictionary[c];
+            values[c] = value == null ? null : value.toString();
+        }
+        return new PrefixIndex(values);
+    }
+
+    /**
+     * @return The number of distinct values that were indexed
+     */
+    int dictionarySize()
+    {
+        return values.length;
+    }
+
+    /**
+     * @return For each code, if its value matches the filters, or null if there's no 
+     *         STARTSWITH or ENDSWITH filter to narrow the search
+     */
+    boolean[] lookup(Collection<? extends IFilterOperator<?>> filters)
+    {
+        // Intersect the ranges of all the filters, as [from,to) of the sorted codes
+        int[] order = null;
+        int from = 0;
+        int to = 0;
+        for (IFilterOperator<?> filter : filters)
+        {
+            if (filter == null || filter.getValue() == null)
+            {
+                continue;
+            }
+
+            final int[] sorted;
+            final String[] keys;
+            final String prefix;
+            if (filter.getType() == IFilterOperator.Type.STARTSWITH)
+            {
+                sorted = byPrefix();
+                keys = values;
+                prefix = filter.getValue().toString();
+            }
+            else if (filter.getType() == IFilterOperator.Type.ENDSWITH)
+            {
+                sorted = bySuffix();
+                keys = reversed;
+                prefix = reverse(filter.getValue().toString());
+            }
+            else
+            {
+                continue;
+            }
+
+            final int lo = lowerBound(sorted, keys, prefix, false);
+            final int hi = lowerBound(sorted, keys, prefix, true);
+            // Keep the narrowest range; the other filters are verified below
+            if (order == null || hi - lo < to - from)
+            {
+                order = sorted;
+                from = lo;
+                to = hi;
+            }
+        }
+        if (order == null)
+        {
+            return null;
+        }
+
+        final Predicate<Object> p = FilterCompiler.compileValuePredicate(filters);
+        final boolean[] matches = new boolean[values.length];
+        for (int k=from; k < to; k++)
+        {
+            final int c = order[k];
+            matches[c] = p.test(values[c]);
+        }
+        return matches;
+    }
+
+    /**
+     * @param after False to find the first value starting with the prefix (or greater than it),
+     *        true to find the first value after the values starting with the prefix
+     * @return Index into the sorted codes
+     */
+    private static int lowerBound(int[] sorted, String[] keys, String prefix, boolean after)
+    {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            final int cmp = comparePrefix(keys[sorted[mid]], prefix);
+            if (cmp < 0 || (after && cmp == 0)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Compare the start of the value to the prefix; all values starting with the prefix are equal
+     */
+    private static int comparePrefix(String value, String prefix)
+    {
+        final int n = Math.min(value.length(), prefix.length());
+        for (int i=0; i < n; i++)
+        {
+            final int diff = value.charAt(i) - prefix.charAt(i);
+            if (diff != 0) return diff;
+        }
+        return value.length() < prefix.length() ? -1 : 0;
+    }
+
+    private int[] byPrefix()
+    {
+        if (byPrefix == null)
+        {
+            byPrefix = sortCodes(values);
+        }
+        return byPrefix;
+    }
+
+    private int[] bySuffix()
+    {
+        if (bySuffix == null)
+        {
+            reversed = new String[values.length];
+            for (int c=0; c < values.length; c++)
+            {
+                reversed[c] = values[c] == null ? null : reverse(values[c]);
+            }
+            bySuffix = sortCodes(reversed);
+        }
+        return bySuffix;
+    }
+
+    /**
+     * @return The codes of the non-null keys, sorted by their key
+     */
+    private static int[] sortCodes(final String[] keys)
+    {
+        final Integer[] codes = new Integer[keys.length];
+        int n = 0;
+        for (int c=0; c < keys.length; c++)
+        {
+            if (keys[c] != null) codes[n++] = c;
+        }
+        Arrays.sort(codes, 0, n, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer a, Integer b)
+            {
+                return keys[a].compareTo(keys[b]);
+            }
+        });
+
+        final int[] ret = new int[n];
+        for (int k=0; k < n; k++) ret[k] = codes[k];
+        return ret;
+    }
+
+    /**
+     * Reverse the chars, leaving surrogate pairs reversed so that endsWith() matches a prefix of the reversed text
+     */
+    private static String reverse(String text)
+    {
+        final char[] chars = new char[text.length()];
+        for (int i=0; i < chars.length; i++)
+        {
+            chars[i] = text.charAt(chars.length - 1 - i);
+        }
+        return new String(chars);
+    }
+}
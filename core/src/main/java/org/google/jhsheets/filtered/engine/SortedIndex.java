@@ -0,0 +1,471 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+
+/**
+ * The rows of a numeric or date column, ordered by their value.
+ * <br/><br/>
+ * A range filter (ie: greater than X and less than Y) is resolved with two binary searches,
+ * which find the slice of the sorted rows holding the matching values, so only the
+ * matching rows are touched instead of scanning the whole column.
+ * <br/><br/>
+ * Double values are stored as longs that sort in the same order as {@link Double#compare(double, double)},
+ * so all column types share the same search.
+ * <br/><br/>
+ * The entries are ordered by key and then by row, so the entry of any row can be found with a
+ * binary search, and inserted, removed and updated rows are applied to the entries in place.
+ *
+ * @author JHS
+ */
+final class SortedIndex
+{
+    /** Changes of more rows than this are applied in a single pass over the entries */
+    private static final int MAX_SINGLE_CHANGES = 32;
+
+    private final ColumnVector vector;
+    /** Sort key of each entry, in ascending order */
+    private long[] keys;
+    /** Row holding the value of each entry */
+    private int[] rows;
+    /** Number of entries; the arrays may have room for more */
+    private int size;
+
+
+    private SortedIndex(ColumnVector vector, long[] keys, int[] rows)
+    {
+        this.vector = vector;
+        this.keys = keys;
+        this.rows = rows;
+        this.size = keys.length;
+    }
+
+    /**
+     * @return If the column holds numbers or dates
+     */
+    static boolean isIndexable(ColumnVector vector)
+    {
+        return vector instanceof ColumnVector.IntVector
+                || vector instanceof ColumnVector.LongVector
+                || vector instanceof ColumnVector.DoubleVector;
+    }
+
+    static SortedIndex build(ColumnVector vector)
+    {
+        final int n = countKeys(vector, 0, vector.size());
+        final long[] keys = new long[n];
+        final int[] rows = new int[n];
+        fillKeys(vector, 0, vector.size(), keys, rows);
+        sort(keys, rows);
+        return new SortedIndex(vector, keys, rows);
+    }
+
+    /**
+     * Add the entries of rows that were inserted into the column
+     *
+     * @param from Index of the first inserted row
+     * @param count Number of rows inserted; they must already be in the vector
+     */
+    void rowsInserted(int from, int count)
+    {
+        if (from + count < vector.size())
+        {
+            shiftRows(from, count);
+        }
+        addEntries(from, from + count);
+    }
+
+    /**
+     * Drop the entries of rows that are being removed from the column
+     *
+     * @param from Index of the first removed row
+     * @param count Number of rows removed; they must still be in the vector
+     */
+    void rowsRemoved(int from, int count)
+    {
+        removeEntries(from, from + count);
+        if (from + count < vector.size())
+        {
+            shiftRows(from + count, -count);
+        }
+    }
+
+    /**
+     * Drop the entries of the rows [from,to); their values must still be in the vector.
+     * Used with {@link #addEntries(int, int)} around an update of the rows' values.
+     */
+    void removeEntries(int from, int to)
+    {
+        if (to - from > MAX_SINGLE_CHANGES)
+        {
+            // Drop them all in a single pass over the entries
+            int n = 0;
+            for (int k=0; k < size; k++)
+            {
+                if (rows[k] < from || rows[k] >= to)
+                {
+                    keys[n] = keys[k];
+                    rows[n++] = rows[k];
+                }
+            }
+            size = n;
+            return;
+        }
+
+        for (int row=from; row < to; row++)
+        {
+            if (isNull(row)) continue;
+            final int k = lowerBound(keyOf(row), row);
+            System.arraycopy(keys, k + 1, keys, k, size - k - 1);
+            System.arraycopy(rows, k + 1, rows, k, size - k - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Add the entries of the rows [from,to), reading their values from the vector
+     */
+    void addEntries(int from, int to)
+    {
+        final int n = countKeys(vector, from, to);
+        final long[] addedKeys = new long[n];
+        final int[] addedRows = new int[n];
+        fillKeys(vector, from, to, addedKeys, addedRows);
+
+        if (size + n > keys.length)
+        {
+            final int capacity = Math.max(size + n, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+        }
+
+        if (n <= MAX_SINGLE_CHANGES)
+        {
+            for (int j=0; j < n; j++)
+            {
+                final int k = lowerBound(addedKeys[j], addedRows[j]);
+                System.arraycopy(keys, k, keys, k + 1, size - k);
+                System.arraycopy(rows, k, rows, k + 1, size - k);
+                keys[k] = addedKeys[j];
+                rows[k] = addedRows[j];
+                size++;
+            }
+            return;
+        }
+
+        // Merge them into the entries from the back, so no entry is overwritten before it is moved
+        sort(addedKeys, addedRows);
+        int i = size - 1, j = n - 1;
+        for (int k = size + n - 1; j >= 0; k--)
+        {
+            if (i >= 0 && (keys[i] > addedKeys[j] || (keys[i] == addedKeys[j] && rows[i] > addedRows[j])))
+            {
+                keys[k] = keys[i];
+                rows[k] = rows[i--];
+            }
+            else
+            {
+                keys[k] = addedKeys[j];
+                rows[k] = addedRows[j--];
+            }
+        }
+        size += n;
+    }
+
+    /**
+     * Move the entries of the rows at and after the index by delta rows
+     */
+    private void shiftRows(int from, int delta)
+    {
+        for (int k=0; k < size; k++)
+        {
+            if (rows[k] >= from) rows[k] += delta;
+        }
+    }
+
+    /**
+     * @param filters The column's filters
+     * @param maxRows Give up if the filters match more rows than this, as a scan would be faster
+     * @return The rows matching the filters, or null if the filters don't bound the values
+     *         or match more than maxRows rows
+     */
+    BitSet lookup(Collection<? extends IFilterOperator<?>> filters, int maxRows)
+    {
+        final long lo;
+        final long hi;
+        final long[] excluded;
+        if (vector instanceof ColumnVector.DoubleVector)
+        {
+            final FilterCompiler.DoubleBounds bounds = FilterCompiler.DoubleBounds.of(filters);
+            if (bounds == null || bounds.ranged == false)
+            {
+                return null;
+            }
+            if (bounds.isEmpty())
+            {
+                return new BitSet();
+            }
+            lo = lowerKey(bounds.lo);
+            hi = upperKey(bounds.hi);
+            final double[] ex = bounds.excluded();
+            excluded = new long[ex.length * 2];
+            for (int i=0; i < ex.length; i++)
+            {
+                excluded[i * 2] = lowerKey(ex[i]);
+                excluded[i * 2 + 1] = upperKey(ex[i]);
+            }
+        }
+        else
+        {
+            final FilterCompiler.IntegerBounds bounds = vector instanceof ColumnVector.IntVector
+                    ? FilterCompiler.IntegerBounds.of(filters, Integer.MIN_VALUE, Integer.MAX_VALUE)
+                    : FilterCompiler.IntegerBounds.of(filters, Long.MIN_VALUE, Long.MAX_VALUE);
+            if (bounds == null || bounds.isRanged() == false)
+            {
+                return null;
+            }
+            if (bounds.isEmpty())
+            {
+                return new BitSet();
+            }
+            lo = bounds.lo();
+            hi = bounds.hi();
+            final long[] ex = bounds.excluded();
+            excluded = new long[ex.length * 2];
+            for (int i=0; i < ex.length; i++)
+            {
+                excluded[i * 2] = ex[i];
+                excluded[i * 2 + 1] = ex[i];
+            }
+        }
+
+        final int from = lowerBound(lo);
+        final int to = upperBound(hi);
+        if (to - from > maxRows)
+        {
+            return null;
+        }
+
+        final BitSet matches = new BitSet(vector.size());
+        for (int k=from; k < to; k++)
+        {
+            matches.set(rows[k]);
+        }
+        for (int i=0; i < excluded.length; i += 2)
+        {
+            final int exTo = upperBound(excluded[i + 1]);
+            for (int k=lowerBound(excluded[i]); k < exTo; k++)
+            {
+                matches.clear(rows[k]);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return Index of the first entry with a key >= the key
+     */
+    private int lowerBound(long key)
+    {
+        int lo = 0, hi = size;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @return Index of the first entry with a key > the key
+     */
+    private int upperBound(long key)
+    {
+        int lo = 0, hi = size;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (keys[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @return Index of the first entry after or at the key and row
+     */
+    private int lowerBound(long key, int row)
+    {
+        int lo = 0, hi = size;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key || (keys[mid] == key && rows[mid] < row)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private boolean isNull(int row)
+    {
+        return vector instanceof ColumnVector.LongVector
+                && ((ColumnVector.LongVector)vector).nulls != null
+                && ((ColumnVector.LongVector)vector).nulls.get(row);
+    }
+
+    /**
+     * @return The sort key of the row's value
+     */
+    private long keyOf(int row)
+    {
+        if (vector instanceof ColumnVector.IntVector)
+        {
+            return ((ColumnVector.IntVector)vector).values[row];
+        }
+        if (vector instanceof ColumnVector.DoubleVector)
+        {
+            return sortKey(((ColumnVector.DoubleVector)vector).values[row]);
+        }
+        return ((ColumnVector.LongVector)vector).values[row];
+    }
+
+    /**
+     * @return A long that sorts in the same order as {@link Double#compare(double, double)}
+     */
+    static long sortKey(double value)
+    {
+        final long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * -0.0 and 0.0 are different keys, but equal values
+     */
+    private static long lowerKey(double value)
+    {
+        return sortKey(value == 0 ? -0.0 : value);
+    }
+
+    private static long upperKey(double value)
+    {
+        return sortKey(value == 0 ? 0.0 : value);
+    }
+
+    /**
+     * @return The number of non-null values in the rows [from,to)
+     */
+    private static int countKeys(ColumnVector vector, int from, int to)
+    {
+        if (vector instanceof ColumnVector.LongVector && ((ColumnVector.LongVector)vector).nulls != null)
+        {
+            return to - from - ((ColumnVector.LongVector)vector).nulls.get(from, to).cardinality();
+        }
+        return to - from;
+    }
+
+    private static void fillKeys(ColumnVector vector, int from, int to, long[] keys, int[] rows)
+    {
+        int k = 0;
+        if (vector instanceof ColumnVector.IntVector)
+        {
+            final int[] values = ((ColumnVector.IntVector)vector).values;
+            for (int i=from; i < to; i++, k++)
+            {
+                keys[k] = values[i];
+                rows[k] = i;
+            }
+        }
+        else if (vector instanceof ColumnVector.DoubleVector)
+        {
+            final double[] values = ((ColumnVector.DoubleVector)vector).values;
+            for (int i=from; i < to; i++, k++)
+            {
+                keys[k] = sortKey(values[i]);
+                rows[k] = i;
+            }
+        }
+        else
+        {
+            final long[] values = ((ColumnVector.LongVector)vector).values;
+            final BitSet nulls = ((ColumnVector.LongVector)vector).nulls;
+            for (int i=from; i < to; i++)
+            {
+                if (nulls != null && nulls.get(i)) continue;
+                keys[k] = values[i];
+                rows[k] = i;
+                k++;
+            }
+        }
+    }
+
+    /**
+     * Stable merge sort of the keys, moving the rows along with their keys.
+     * The rows are given in ascending order, so equal keys stay ordered by row.
+     */
+    private static void sort(long[] keys, int[] rows)
+    {
+        final int n = keys.length;
+        long[] srcKeys = keys, dstKeys = new long[n];
+        int[] srcRows = rows, dstRows = new int[n];
+
+        for (int width=1; width < n; width <<= 1)
+        {
+            for (int lo=0; lo < n; lo += width << 1)
+            {
+                final int mid = Math.min(lo + width, n);
+                final int hi = Math.min(lo + (width << 1), n);
+                int i = lo, j = mid;
+                for (int k=lo; k < hi; k++)
+                {
+                    if (j == hi || (i < mid && srcKeys[i] <= srcKeys[j]))
+                    {
+                        dstKeys[k] = srcKeys[i];
+                        dstRows[k] = srcRows[i++];
+                    }
+                    else
+                    {
+                        dstKeys[k] = srcKeys[j];
+                        dstRows[k] = srcRows[j++];
+                    }
+                }
+            }
+            final long[] tk = srcKeys; srcKeys = dstKeys; dstKeys = tk;
+            final int[] tr = srcRows; srcRows = dstRows; dstRows = tr;
+        }
+
+        if (srcKeys != keys)
+        {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcRows, 0, rows, 0, n);
+        }
+    }
+}
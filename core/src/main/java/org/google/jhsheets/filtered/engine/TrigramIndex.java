@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.operators.StringOperator;
+
+/**
+ * An index of the trigrams (sequences of 3 characters) found in the distinct values of a text column.
+ * <br/><br/>
+ * A value can only contain a string if it contains all of that string's trigrams,
+ * so a {@link IFilterOperator.Type#CONTAINS} filter only has to check the values found in the 
+ * posting lists of all of its trigrams, instead of searching every row.
+ * The candidates are then verified against all of the column's filters.
+ * <br/><br/>
+ * Matching is case sensitive, the same as the {@link StringOperator}.
+ *
+ * @author JHS
+ */
+final class TrigramIndex
+{
+    /** Version of the source rows the index was built from */
+    int version;
+    /** Code of each row's value, or -1 for a null value */
+    private int[] codes;
+    /** Number of rows; the codes array may have room for more */
+    private int size;
+    /** The distinct values */
+    private String[] dictionary;
+    private int dictionarySize;
+    private final Map<String, Integer> lookup = new HashMap<>();
+    /** Codes of the values containing each trigram, in ascending order */
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+
+    private TrigramIndex(int version)
+    {
+        this.version = version;
+        this.codes = new int[0];
+        this.dictionary = new String[16];
+    }
+
+    /**
+     * @param values The text of each row, as returned by {@link Object#toString()}
+     * @param version Version of the source rows the values were read from
+     */
+    static TrigramIndex build(String[] values, int version)
+    {
+        final TrigramIndex index = new TrigramIndex(version);
+        index.insert(0, values);
+        return index;
+    }
+
+    /**
+     * @return The number of rows
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Add rows that were inserted into the source list
+     *
+     * @param from Index of the first inserted row
+     * @param values The text of each inserted row
+     */
+    void insert(int from, String[] values)
+    {
+        codes = (int[])ColumnVector.insertGap(codes, size, from, values.length);
+        size += values.length;
+        update(from, values);
+    }
+
+    /**
+     * Drop rows that were removed from the source list
+     *
+     * @param from Index of the first removed row
+     * @param count Number of rows removed
+     */
+    void remove(int from, int count)
+    {
+        ColumnVector.removeGap(codes, size, from, count);
+        size -= count;
+    }
+
+    /**
+     * Re-index rows that were updated in the source list.
+     * Values that are no longer used stay in the index, but are never matched to a row.
+     *
+     * @param from Index of the first updated row
+     * @param values The new text of each updated row
+     */
+    void update(int from, String[] values)
+    {
+        for (int i=0; i < values.length; i++)
+        {
+            codes[from + i] = values[i] == null ? -1 : encode(values[i]);
+        }
+    }
+
+    private int encode(String value)
+    {
+        final Integer existing = lookup.get(value);
+        if (existing != null)
+        {
+            return existing;
+        }
+
+        final int code = dictionarySize++;
+        if (code == dictionary.length)
+        {
+            dictionary = Arrays.copyOf(dictionary, code * 2);
+        }
+        dictionary[code] = value;
+        lookup.put(value, code);
+
+        for (int i=0; i + 3 <= value.length(); i++)
+        {
+            final Long trigram = trigram(value, i);
+            Postings list = postings.get(trigram);
+            if (list == null)
+            {
+                list = new Postings();
+                postings.put(trigram, list);
+            }
+            // Codes are added in ascending order, so a repeated trigram is always the last code
+            list.add(code);
+        }
+        return code;
+    }
+
+    /**
+     * @return The rows matching the filters, or null if there's no CONTAINS filter to narrow the search
+     */
+    BitSet lookup(Collection<? extends IFilterOperator<?>> filters)
+    {
+        boolean hasContains = false;
+        final List<Postings> lists = new ArrayList<>();
+        for (IFilterOperator<?> filter : filters)
+        {
+            if (filter == null || filter.getType() != IFilterOperator.Type.CONTAINS || filter.getValue() == null)
+            {
+                continue;
+            }
+            hasContains = true;
+
+            final String text = filter.getValue().toString();
+            for (int i=0; i + 3 <= text.length(); i++)
+            {
+                final Postings list = postings.get(trigram(text, i));
+                if (list == null)
+                {
+                    return new BitSet();
+                }
+                lists.add(list);
+            }
+        }
+        if (hasContains == false)
+        {
+            return null;
+        }
+
+        // Intersect the shortest lists first
+        int[] candidates = null;
+        Collections.sort(lists, new Comparator<Postings>()
+        {
+            @Override
+            public int compare(Postings a, Postings b)
+            {
+                return Integer.compare(a.size, b.size);
+            }
+        });
+        for (Postings list : lists)
+        {
+            candidates = candidates == null ? Arrays.copyOf(list.codes, list.size) : intersect(candidates, list);
+        }
+
+        // Strings shorter than a trigram are verified against every distinct value
+        final Predicate<Object> p = FilterCompiler.compileValuePredicate(filters);
+        final boolean[] matches = new boolean[dictionarySize];
+        if (candidates == null)
+        {
+            for (int c=0; c < dictionarySize; c++)
+            {
+                matches[c] = p.test(dictionary[c]);
+            }
+        }
+        else
+        {
+            for (int c : candidates)
+            {
+                matches[c] = p.test(dictionary[c]);
+            }
+        }
+
+        final int[] rowCodes = codes;
+        final long[] words = new long[(size + 63) >>> 6];
+        for (int i=0; i < size; i++)
+        {
+            final int c = rowCodes[i];
+            if (c >= 0 && matches[c]) words[i >>> 6] |= 1L << i;
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * @return The codes found in both sorted lists
+     */
+    private static int[] intersect(int[] codes, Postings list)
+    {
+        final int[] ret = new int[Math.min(codes.length, list.size)];
+        int n = 0;
+        for (int i=0, j=0; i < codes.length && j < list.size; )
+        {
+            if (codes[i] < list.codes[j]) i++;
+            else if (codes[i] > list.codes[j]) j++;
+            else
+            {
+                ret[n++] = codes[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(ret, n);
+    }
+
+    private static Long trigram(String text, int index)
+    {
+        return ((long)text.charAt(index) << 32) | ((long)text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    /**
+     * A growable, sorted list of codes
+     */
+    private static final class Postings
+    {
+        int[] codes = new int[4];
+        int size;
+
+        void add(int code)
+        {
+            if (size > 0 && codes[size - 1] == code)
+            {
+                return;
+            }
+            if (size == codes.length)
+            {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            codes[size++] = code;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.engine;
+
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Fetches a column's value from a row.
+ * <br/><br/>
+ * Besides plain objects, values may be fetched as primitive int, long or double values,
+ * which lets the {@link FilterCompiler} compare them without boxing each row's value.
+ * Use the {@link #getKind()} to determine which accessor method to call.
+ *
+ * @author JHS
+ */
+public abstract class ValueExtractor<S>
+{
+    /**
+     * The type of value returned by an extractor
+     */
+    public static enum Kind
+    {
+          OBJECT
+        , INT
+        , LONG
+        , DOUBLE
+    }
+
+    private final Kind kind;
+
+
+    protected ValueExtractor(Kind kind)
+    {
+        this.kind = kind;
+    }
+
+    /**
+     * @return Which accessor method returns the value without conversion
+     */
+    public final Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * @return The value of the row, boxed if it's a primitive
+     */
+    public abstract Object apply(S row);
+
+    /**
+     * @return The value of the row; only supported by {@link Kind#INT} extractors
+     */
+    public int applyAsInt(S row)
+    {
+        throw new UnsupportedOperationException(String.format("%s extractor cannot return an int", kind));
+    }
+
+    /**
+     * @return The value of the row; supported by {@link Kind#INT} and {@link Kind#LONG} extractors
+     */
+    public long applyAsLong(S row)
+    {
+        throw new UnsupportedOperationException(String.format("%s extractor cannot return a long", kind));
+    }
+
+    /**
+     * @return The value of the row; supported by all primitive extractors
+     */
+    public double applyAsDouble(S row)
+    {
+        throw new UnsupportedOperationException(String.format("%s extractor cannot return a double", kind));
+    }
+
+    /**
+     * @return Extractor of objects.  Extractors of the same function are equal, so wrapping 
+     *         a function again doesn't make the engine discard the values it read with it.
+     */
+    public static <S> ValueExtractor<S> of(final Function<? super S, ?> function)
+    {
+        return new FunctionExtractor<S>(function);
+    }
+
+    public static <S> ValueExtractor<S> ofInt(final ToIntFunction<? super S> function)
+    {
+        return new ValueExtractor<S>(Kind.INT)
+        {
+            @Override
+            public Object apply(S row)
+            {
+                return function.applyAsInt(row);
+            }
+
+            @Override
+            public int applyAsInt(S row)
+            {
+                return function.applyAsInt(row);
+            }
+
+            @Override
+            public long applyAsLong(S row)
+            {
+                return function.applyAsInt(row);
+            }
+
+            @Override
+            public double applyAsDouble(S row)
+            {
+                return function.applyAsInt(row);
+            }
+        };
+    }
+
+    public static <S> ValueExtractor<S> ofLong(final ToLongFunction<? super S> function)
+    {
+        return new ValueExtractor<S>(Kind.LONG)
+        {
+            @Override
+            public Object apply(S row)
+            {
+                return function.applyAsLong(row);
+            }
+
+            @Override
+            public long applyAsLong(S row)
+            {
+                return function.applyAsLong(row);
+            }
+
+            @Override
+            public double applyAsDouble(S row)
+            {
+                return function.applyAsLong(row);
+            }
+        };
+    }
+
+    public static <S> ValueExtractor<S> ofDouble(final ToDoubleFunction<? super S> function)
+    {
+        return new ValueExtractor<S>(Kind.DOUBLE)
+        {
+            @Override
+            public Object apply(S row)
+            {
+                return function.applyAsDouble(row);
+            }
+
+            @Override
+            public double applyAsDouble(S row)
+            {
+                return function.applyAsDouble(row);
+            }
+        };
+    }
+
+    private static final class FunctionExtractor<S> extends ValueExtractor<S>
+    {
+        private final Function<? super S, ?> function;
+
+        FunctionExtractor(Function<? super S, ?> function)
+        {
+            super(Kind.OBJECT);
+            this.function = function;
+        }
+
+        @Override
+        public Object apply(S row)
+        {
+            return function.apply(row);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof FunctionExtractor && function.equals(((FunctionExtractor<?>)o).function);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return function.hashCode();
+        }
+    }
+}
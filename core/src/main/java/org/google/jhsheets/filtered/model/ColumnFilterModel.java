@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+
+/**
+ * Holds a column's filters, independently of the controls used to edit them.
+ * <br/><br/>
+ * A filter editor saves its filters to the model, and the model hands out immutable 
+ * {@link FilterState} snapshots, which can be read from any thread.  The model doesn't
+ * use JavaFX, so filters can also be set up and evaluated without the toolkit;
+ * ie: by a headless service passing them to a {@link org.google.jhsheets.filtered.engine.FilterEngine}.
+ * <br/><br/>
+ * Listeners are notified on the thread that changed the state.  A filterable table column
+ * listens to its own model, and enters a state set on it in the column's filter editor,
+ * so the state of a column's model must be set on the JavaFX application thread.
+ *
+ * @author JHS
+ */
+public class ColumnFilterModel<R extends IFilterOperator<?>>
+{
+    /**
+     * Notified when a model's filter state changes
+     */
+    public interface Listener<R extends IFilterOperator<?>>
+    {
+        /**
+         * @param model The model that changed
+         * @param oldState The previous state
+         * @param newState The current state
+         */
+        void stateChanged(ColumnFilterModel<R> model, FilterState<R> oldState, FilterState<R> newState);
+    }
+    
+    private volatile FilterState<R> state = FilterState.empty();
+    private final List<Listener<R>> listeners = new CopyOnWriteArrayList<>();
+    
+    /**
+     * @return A snapshot of the column's current filters
+     */
+    public FilterState<R> getState()
+    {
+        return state;
+    }
+    
+    /**
+     * @return The column's current filters.  The list can't be modified.
+     */
+    public List<R> getFilters()
+    {
+        return state.getFilters();
+    }
+    
+    /**
+     * @return If the column is currently filtered
+     */
+    public boolean isFiltered()
+    {
+        return state.isFiltered();
+    }
+    
+    /**
+     * Replace the column's filters
+     * 
+     * @param filters The column's filters, which are copied
+     * @param filtered If the filters filter the column
+     * @return If the state changed
+     */
+    public boolean setState(Collection<? extends R> filters, boolean filtered)
+    {
+        return setState(FilterState.<R>of(filters, filtered));
+    }
+    
+    /**
+     * Replace the column's filters
+     * 
+     * @param newState The column's new state
+     * @return If the state changed
+     */
+    public boolean setState(FilterState<R> newState)
+    {
+        final FilterState<R> oldState;
+        synchronized (this)
+        {
+            oldState = state;
+            if (oldState.equals(newState))
+            {
+                return false;
+            }
+            state = newState;
+        }
+        for (Listener<R> listener : listeners)
+        {
+            listener.stateChanged(this, oldState, newState);
+        }
+        return true;
+    }
+    
+    public void addListener(Listener<R> listener)
+    {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(Listener<R> listener)
+    {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the filters of all the columns of a table, numbered by version.
+ * <br/><br/>
+ * Each change to the table's filters produces a snapshot with a higher version, so a
+ * consumer evaluating the filters on another thread can use a snapshot as a consistent 
+ * view of them, and discard its result if the table's snapshot has a different version
+ * by the time it's done.
+ *
+ * @author JHS
+ */
+public final class FilterSnapshot
+{
+    /** A snapshot of a table without filters */
+    public static final FilterSnapshot EMPTY = new FilterSnapshot(0, Collections.<Object, FilterState<?>>emptyMap());
+    
+    private final long version;
+    private final Map<Object, FilterState<?>> states;
+    
+    /**
+     * @param version Version of the table's filters
+     * @param states The filters of each column, keyed by the column, which are copied
+     */
+    public FilterSnapshot(long version, Map<?, ? extends FilterState<?>> states)
+    {
+        this.version = version;
+        this.states = Collections.unmodifiableMap(new LinkedHashMap<Object, FilterState<?>>(states));
+    }
+    
+    /**
+     * @return Version of the table's filters; a later change has a higher version
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+    
+    /**
+     * @return The filters of each column, keyed by the column, in the order of the table's columns.
+     *         The map can't be modified.
+     */
+    public Map<Object, FilterState<?>> getStates()
+    {
+        return states;
+    }
+    
+    /**
+     * @param column The column
+     * @return The column's filters, which are empty if the column isn't in the snapshot
+     */
+    public FilterState<?> getState(Object column)
+    {
+        final FilterState<?> state = states.get(column);
+        return state == null ? FilterState.empty() : state;
+    }
+    
+    /**
+     * @return If any of the columns are filtered
+     */
+    public boolean isFiltered()
+    {
+        for (FilterState<?> state : states.values())
+        {
+            if (state.isFiltered())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "Version " + version + " " + states;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+
+/**
+ * An immutable snapshot of a column's filters.  It can be read from any thread, 
+ * and evaluated without the filter editor or the JavaFX toolkit.
+ * <br/><br/>
+ * A column can have filters without being filtered; ie: NONE filters, or the filters
+ * matching everything that an editor saves when it's cleared.
+ *
+ * @see ColumnFilterModel
+ * 
+ * @author JHS
+ */
+public final class FilterState<R extends IFilterOperator<?>>
+{
+    @SuppressWarnings("rawtypes")
+    private static final FilterState EMPTY = new FilterState<>(Collections.emptyList(), false);
+    
+    private final List<R> filters;
+    private final boolean filtered;
+    
+    private FilterState(List<R> filters, boolean filtered)
+    {
+        this.filters = filters;
+        this.filtered = filtered;
+    }
+    
+    /**
+     * @return The state of a column that has no filters
+     */
+    @SuppressWarnings("unchecked")
+    public static <R extends IFilterOperator<?>> FilterState<R> empty()
+    {
+        return EMPTY;
+    }
+    
+    /**
+     * @param filters The column's filters, which are copied
+     * @param filtered If the filters filter the column
+     * @return The state of a column with the filters
+     */
+    public static <R extends IFilterOperator<?>> FilterState<R> of(Collection<? extends R> filters, boolean filtered)
+    {
+        if (filters.isEmpty() && filtered == false)
+        {
+            return empty();
+        }
+        return new FilterState<R>(Collections.unmodifiableList(new ArrayList<R>(filters)), filtered);
+    }
+    
+    /**
+     * @return The column's filters.  The list can't be modified.
+     */
+    public List<R> getFilters()
+    {
+        return filters;
+    }
+    
+    /**
+     * @return If the column is filtered
+     */
+    public boolean isFiltered()
+    {
+        return filtered;
+    }
+    
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj instanceof FilterState == false)
+        {
+            return false;
+        }
+        final FilterState<?> other = (FilterState<?>)obj;
+        return filtered == other.filtered && filters.equals(other.filters);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return filters.hashCode() * 31 + (filtered ? 1 : 0);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return (filtered ? "Filtered " : "Not filtered ") + filters;
+    }
+}
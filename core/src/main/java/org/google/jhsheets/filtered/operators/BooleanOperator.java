@@ -26,6 +26,7 @@
 package org.google.jhsheets.filtered.operators;
 
 import java.util.EnumSet;
+import java.util.Objects;
 
 /**
  *
@@ -39,6 +40,11 @@ public class BooleanOperator implements IFilterOperator<Boolean>
 			, Type.FALSE
 			);
 	
+    /** Shared operators of each type, as the value only depends on the type */
+    public static final BooleanOperator NONE = new BooleanOperator(Type.NONE, null);
+    public static final BooleanOperator TRUE = new BooleanOperator(Type.TRUE, true);
+    public static final BooleanOperator FALSE = new BooleanOperator(Type.FALSE, false);
+	
     private final IFilterOperator.Type type;
     private final Boolean value;
     
@@ -60,4 +66,50 @@ public class BooleanOperator implements IFilterOperator<Boolean>
         return value;
     }
     
-}
\ No newline at end of file
+    /**
+     * @param type NONE, TRUE or FALSE
+     * @return The shared operator of the type
+     * @throws IllegalArgumentException If the type isn't a boolean filter type
+     */
+    public static BooleanOperator valueOf(IFilterOperator.Type type)
+    {
+        switch (type)
+        {
+            case NONE:  return NONE;
+            case TRUE:  return TRUE;
+            case FALSE: return FALSE;
+            default:    throw new IllegalArgumentException("Not a boolean filter type: " + type);
+        }
+    }
+    
+    /**
+     * Operators are equal if they have the same type and an equal value
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass())
+        {
+            return false;
+        }
+        final BooleanOperator other = (BooleanOperator)obj;
+        return type == other.type && Objects.equals(value, other.value);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return type.ordinal() * 31 + Objects.hashCode(value);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return type.name() + " " + value;
+    }
+    
+}
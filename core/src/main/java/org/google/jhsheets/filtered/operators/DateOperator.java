@@ -27,6 +27,7 @@ package org.google.jhsheets.filtered.operators;
 
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.Objects;
 
 /**
  *
@@ -44,13 +45,17 @@ public class DateOperator implements IFilterOperator<Date>
 			, Type.BEFOREON
 			);
 	
+    /** Shared operator that doesn't filter anything */
+    public static final DateOperator NONE = new DateOperator(Type.NONE, null);
+	
     private final IFilterOperator.Type type;
     private final Date value;
     
     public DateOperator(IFilterOperator.Type type, Date value)
     {
         this.type = type;
-        this.value = value;
+        // Copied, so the operator can't be changed once created
+        this.value = value == null ? null : new Date(value.getTime());
     }
     
     @Override
@@ -62,7 +67,45 @@ public class DateOperator implements IFilterOperator<Date>
     @Override
     public Date getValue()
     {
-        return value;
+        return value == null ? null : new Date(value.getTime());
+    }
+    
+    /**
+     * @return The shared NONE operator if the type is NONE, otherwise a new operator
+     */
+    public static DateOperator valueOf(IFilterOperator.Type type, Date value)
+    {
+        return type == Type.NONE ? NONE : new DateOperator(type, value);
+    }
+    
+    /**
+     * Operators are equal if they have the same type and an equal value
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass())
+        {
+            return false;
+        }
+        final DateOperator other = (DateOperator)obj;
+        return type == other.type && Objects.equals(value, other.value);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return type.ordinal() * 31 + Objects.hashCode(value);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return type.name() + " " + value;
     }
     
 }
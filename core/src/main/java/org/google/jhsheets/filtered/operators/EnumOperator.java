@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.operators;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Filters a column by its values.  An EQUALS operator matches a single value, while an IN operator
+ * matches any value of a set, and a NOTIN operator any value not in the set; the set's values are 
+ * returned by {@link #getValues()}, and {@link #getValue()} returns null.
+ * <br/><br/>
+ * Checking if a value is in the set takes the same time however many values it holds, so a
+ * single IN operator is much faster than one EQUALS operator per value.  Sets of enum constants
+ * are held in an {@link EnumSet}.  Null can't be held in an EnumSet, so whether null matches is
+ * held apart from the values (see {@link #matchesNull()}).
+ *
+ * @author JHS
+ */
+public class EnumOperator<T> implements IFilterOperator<T>
+{
+	public static final EnumSet<Type> VALID_TYPES = EnumSet.of(
+			Type.NONE
+			, Type.EQUALS
+			, Type.IN
+			, Type.NOTIN
+			);
+	
+    /** Shared operator that doesn't filter anything */
+    private static final EnumOperator<?> NONE = new EnumOperator<Object>(Type.NONE, (Object)null);
+    
+    /** Shared EQUALS operators of the enum constants that were filtered by */
+    private static final ConcurrentMap<Enum<?>, EnumOperator<?>> EQUALS = new ConcurrentHashMap<>();
+	
+    private final IFilterOperator.Type type;
+    private final T value;
+    /** Values of an IN or NOTIN operator, without null, otherwise null */
+    private final Set<T> values;
+    /** If an IN or NOTIN operator matches null */
+    private final boolean matchesNull;
+    
+    public EnumOperator(IFilterOperator.Type type, T value)
+    {
+        this.type = type;
+        this.value = value;
+        this.values = null;
+        this.matchesNull = false;
+    }
+    
+    private EnumOperator(IFilterOperator.Type type, Set<T> values, boolean matchesNull)
+    {
+        this.type = type;
+        this.value = null;
+        this.values = values;
+        this.matchesNull = matchesNull;
+    }
+    
+    /**
+     * @param values The values to match
+     * @return Operator matching any of the values
+     */
+    public static <T> EnumOperator<T> in(Collection<? extends T> values)
+    {
+        return new EnumOperator<T>(Type.IN, copyOf(values), containsNull(values));
+    }
+    
+    /**
+     * @param values The values not to match; include null to not match null values
+     * @return Operator matching any value except these values
+     */
+    public static <T> EnumOperator<T> notIn(Collection<? extends T> values)
+    {
+        return new EnumOperator<T>(Type.NOTIN, copyOf(values), containsNull(values) == false);
+    }
+    
+    /**
+     * @return An unmodifiable copy of the values, without null; an {@link EnumSet} if they're all constants of the same enum
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T> Set<T> copyOf(Collection<? extends T> values)
+    {
+        Class<?> enumClass = null;
+        for (T v : values)
+        {
+            if (v == null)
+            {
+                continue;
+            }
+            final Class<?> c = v instanceof Enum ? ((Enum<?>)v).getDeclaringClass() : null;
+            if (c == null || (enumClass != null && c != enumClass))
+            {
+                enumClass = null;
+                break;
+            }
+            enumClass = c;
+        }
+        
+        final Set<T> copy = enumClass != null ? EnumSet.noneOf((Class)enumClass) : new LinkedHashSet<T>(values.size());
+        for (T v : values)
+        {
+            if (v != null)
+            {
+                copy.add(v);
+            }
+        }
+        return Collections.unmodifiableSet(copy);
+    }
+    
+    /**
+     * Checked by iterating, as some collections don't allow null to be looked up
+     */
+    private static boolean containsNull(Collection<?> values)
+    {
+        for (Object v : values)
+        {
+            if (v == null)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public IFilterOperator.Type getType()
+    {
+        return type;
+    }
+    
+    @Override
+    public T getValue()
+    {
+        return value;
+    }
+    
+    /**
+     * @return The values of an IN or NOTIN operator, without null, otherwise null
+     */
+    public Set<T> getValues()
+    {
+        return values;
+    }
+    
+    /**
+     * @return If an IN or NOTIN operator matches null values; null is listed in an IN operator's
+     *         values to match it, and in a NOTIN operator's values to not match it
+     */
+    public boolean matchesNull()
+    {
+        return matchesNull;
+    }
+    
+    /**
+     * @return The shared operator that doesn't filter anything
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EnumOperator<T> none()
+    {
+        return (EnumOperator<T>)NONE;
+    }
+    
+    /**
+     * Enum constants are few, and are compared with EQUALS over and over as their values are
+     * checked and unchecked, so their EQUALS operators are shared.
+     * 
+     * @return The shared NONE operator, or the shared EQUALS operator of an enum constant, 
+     *         otherwise a new operator
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EnumOperator<T> valueOf(IFilterOperator.Type type, T value)
+    {
+        if (type == Type.NONE)
+        {
+            return none();
+        }
+        if (type == Type.EQUALS && value instanceof Enum)
+        {
+            EnumOperator<?> filter = EQUALS.get(value);
+            if (filter == null)
+            {
+                final EnumOperator<?> created = new EnumOperator<T>(type, value);
+                filter = EQUALS.putIfAbsent((Enum<?>)value, created);
+                if (filter == null)
+                {
+                    filter = created;
+                }
+            }
+            return (EnumOperator<T>)filter;
+        }
+        return new EnumOperator<T>(type, value);
+    }
+    
+    /**
+     * Operators are equal if they have the same type and an equal value
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass())
+        {
+            return false;
+        }
+        final EnumOperator<?> other = (EnumOperator<?>)obj;
+        return type == other.type && Objects.equals(value, other.value) && Objects.equals(values, other.values)
+                && matchesNull == other.matchesNull;
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return ((type.ordinal() * 31 + Objects.hashCode(value)) * 31 + Objects.hashCode(values)) * 2 + (matchesNull ? 1 : 0);
+    }
+    
+    @Override
+    public String toString()
+    {
+        if (values == null)
+        {
+            return type.name() + " " + value;
+        }
+        // List null the way it was passed in
+        final List<Object> listed = new ArrayList<Object>(values);
+        if (matchesNull == (type == Type.IN))
+        {
+            listed.add(null);
+        }
+        return type.name() + " " + listed;
+    }
+    
+}
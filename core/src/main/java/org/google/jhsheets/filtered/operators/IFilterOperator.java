@@ -40,6 +40,8 @@ public interface IFilterOperator<T>
         , NOTSET("Not Set")
         , EQUALS("Equals")
         , NOTEQUALS("Not Equals")
+        , IN("In")
+        , NOTIN("Not In")
         , GREATERTHAN("Greater Than")
         , GREATERTHANEQUALS("Equals/Greater Than")
         , LESSTHAN("Less Than")
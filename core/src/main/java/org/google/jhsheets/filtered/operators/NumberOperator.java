@@ -26,6 +26,7 @@
 package org.google.jhsheets.filtered.operators;
 
 import java.util.EnumSet;
+import java.util.Objects;
 
 /**
  *
@@ -43,6 +44,9 @@ public class NumberOperator<T extends Number> implements IFilterOperator<T>
 			, Type.LESSTHANEQUALS
 			);
 
+    /** Shared operator that doesn't filter anything */
+    private static final NumberOperator<?> NONE = new NumberOperator<Integer>(Type.NONE, 0);
+
     private final IFilterOperator.Type type;
     private final T value;
     
@@ -64,4 +68,51 @@ public class NumberOperator<T extends Number> implements IFilterOperator<T>
         return value;
     }
     
+    /**
+     * @return The shared operator that doesn't filter anything
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Number> NumberOperator<T> none()
+    {
+        return (NumberOperator<T>)NONE;
+    }
+    
+    /**
+     * @return The shared NONE operator if the type is NONE, otherwise a new operator
+     */
+    public static <T extends Number> NumberOperator<T> valueOf(IFilterOperator.Type type, T value)
+    {
+        return type == Type.NONE ? NumberOperator.<T>none() : new NumberOperator<T>(type, value);
+    }
+    
+    /**
+     * Operators are equal if they have the same type and an equal value
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass())
+        {
+            return false;
+        }
+        final NumberOperator<?> other = (NumberOperator<?>)obj;
+        return type == other.type && Objects.equals(value, other.value);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return type.ordinal() * 31 + Objects.hashCode(value);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return type.name() + " " + value;
+    }
+    
 }
@@ -26,6 +26,7 @@
 package org.google.jhsheets.filtered.operators;
 
 import java.util.EnumSet;
+import java.util.Objects;
 
 /**
  *
@@ -42,6 +43,9 @@ public class StringOperator implements IFilterOperator<String>
 			, Type.ENDSWITH
 			);
 
+    /** Shared operator that doesn't filter anything */
+    public static final StringOperator NONE = new StringOperator(Type.NONE, "");
+
     private final IFilterOperator.Type type;
     private final String value;
     
@@ -63,4 +67,42 @@ public class StringOperator implements IFilterOperator<String>
         return value;
     }
     
+    /**
+     * @return The shared NONE operator if the type is NONE, otherwise a new operator
+     */
+    public static StringOperator valueOf(IFilterOperator.Type type, String value)
+    {
+        return type == Type.NONE ? NONE : new StringOperator(type, value);
+    }
+    
+    /**
+     * Operators are equal if they have the same type and an equal value
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass())
+        {
+            return false;
+        }
+        final StringOperator other = (StringOperator)obj;
+        return type == other.type && Objects.equals(value, other.value);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return type.ordinal() * 31 + Objects.hashCode(value);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return type.name() + " " + value;
+    }
+    
 }
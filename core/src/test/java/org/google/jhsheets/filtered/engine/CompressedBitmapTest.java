@@ -0,0 +1,132 @@
+package org.google.jhsheets.filtered.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks a {@link CompressedBitmap} against a {@link BitSet} given the same changes
+ *
+ * @author JHS
+ */
+public class CompressedBitmapTest
+{
+    private static final int CHUNK = 1 << 16;
+
+    @Test
+    public void changesMatchBitSet()
+    {
+        final Random random = new Random(6);
+        final CompressedBitmap bitmap = new CompressedBitmap();
+        BitSet expected = new BitSet();
+
+        // A sparse chunk, a dense chunk, and a chunk of runs
+        for (int row=0; row < CHUNK * 3; row++)
+        {
+            final boolean set = row < CHUNK ? random.nextInt(50) == 0 
+                    : row < CHUNK * 2 ? random.nextBoolean() 
+                    : (row / 1000) % 2 == 0;
+            if (set)
+            {
+                bitmap.append(row);
+                expected.set(row);
+            }
+        }
+        bitmap.runOptimize();
+        check(expected, bitmap);
+
+        for (int i=0; i < 300; i++)
+        {
+            final int chunk = random.nextInt(4) * CHUNK;
+            switch (random.nextInt(4))
+            {
+                case 0:
+                    // Enough to turn an array into a bitmap
+                    for (int j=0; j < 3000; j++)
+                    {
+                        final int row = chunk + random.nextInt(CHUNK);
+                        bitmap.add(row);
+                        expected.set(row);
+                    }
+                    break;
+                case 1:
+                    // Enough to turn a bitmap back into an array, or empty a chunk
+                    for (int j=0; j < 3000; j++)
+                    {
+                        final int row = chunk + random.nextInt(CHUNK);
+                        bitmap.remove(row);
+                        expected.clear(row);
+                    }
+                    break;
+                case 2:
+                {
+                    final int from = random.nextInt(CHUNK * 4);
+                    final int count = random.nextBoolean() ? 1 + random.nextInt(10) : random.nextInt(CHUNK * 2);
+                    bitmap.insertRows(from, count);
+                    expected = ColumnVector.insertBits(expected, from, count);
+                    break;
+                }
+                default:
+                {
+                    final int from = random.nextInt(CHUNK * 4);
+                    final int count = random.nextBoolean() ? 1 + random.nextInt(10) : random.nextInt(CHUNK);
+                    bitmap.removeRows(from, count);
+                    expected = ColumnVector.removeBits(expected, from, count);
+                    break;
+                }
+            }
+            check(expected, bitmap);
+        }
+    }
+
+    @Test
+    public void andMatchesBitSet()
+    {
+        final Random random = new Random(7);
+        for (int i=0; i < 20; i++)
+        {
+            final BitSet a = new BitSet();
+            final BitSet b = new BitSet();
+            final CompressedBitmap ca = randomBitmap(random, a);
+            final CompressedBitmap cb = randomBitmap(random, b);
+            a.and(b);
+            check(a, ca.and(cb));
+        }
+    }
+
+    /**
+     * @param bits Set to the rows of the bitmap
+     * @return A bitmap of chunks with a random density
+     */
+    private static CompressedBitmap randomBitmap(Random random, BitSet bits)
+    {
+        final CompressedBitmap bitmap = new CompressedBitmap();
+        for (int chunk=0; chunk < 4; chunk++)
+        {
+            final int density = 1 + random.nextInt(100);
+            for (int row = chunk * CHUNK; row < (chunk + 1) * CHUNK; row++)
+            {
+                if (random.nextInt(density) == 0)
+                {
+                    bitmap.append(row);
+                    bits.set(row);
+                }
+            }
+        }
+        if (random.nextBoolean())
+        {
+            bitmap.runOptimize();
+        }
+        return bitmap;
+    }
+
+    private static void check(BitSet expected, CompressedBitmap bitmap)
+    {
+        assertEquals(expected, bitmap.toBitSet());
+        assertEquals(expected.cardinality(), bitmap.cardinality());
+        assertEquals(expected.isEmpty(), bitmap.isEmpty());
+    }
+}
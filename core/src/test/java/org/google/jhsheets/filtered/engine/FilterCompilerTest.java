@@ -0,0 +1,140 @@
+package org.google.jhsheets.filtered.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.operators.NumberOperator;
+import org.junit.Test;
+
+/**
+ * Checks the compiled numeric filters, in particular NaN and -0.0, and that
+ * boxed and primitive values are filtered the same way
+ *
+ * @author JHS
+ */
+public class FilterCompilerTest
+{
+    private static final IFilterOperator.Type[] TYPES = {
+        IFilterOperator.Type.EQUALS, IFilterOperator.Type.NOTEQUALS,
+        IFilterOperator.Type.GREATERTHAN, IFilterOperator.Type.GREATERTHANEQUALS,
+        IFilterOperator.Type.LESSTHAN, IFilterOperator.Type.LESSTHANEQUALS };
+
+    private static final double[] VALUES = {
+        Double.NaN, -0.0, 0.0, 1.5, -2, 3, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+
+    private static final ValueExtractor<Double> BOXED = ValueExtractor.of(new Function<Double, Object>()
+    {
+        @Override
+        public Object apply(Double value)
+        {
+            return value;
+        }
+    });
+
+    private static final ValueExtractor<Double> PRIMITIVE = ValueExtractor.ofDouble(new ToDoubleFunction<Double>()
+    {
+        @Override
+        public double applyAsDouble(Double value)
+        {
+            return value;
+        }
+    });
+
+    @Test
+    public void nanOnlyMatchesNotEquals()
+    {
+        for (IFilterOperator.Type type : TYPES)
+        {
+            for (double operand : VALUES)
+            {
+                final List<NumberOperator<Double>> filters = Collections.singletonList(new NumberOperator<>(type, operand));
+                final boolean expected = type == IFilterOperator.Type.NOTEQUALS;
+                assertEquals(type + " " + operand, expected, FilterCompiler.compileDouble(filters).test(Double.NaN));
+                assertEquals(type + " " + operand, expected, FilterCompiler.compileValuePredicate(filters).test(Double.NaN));
+            }
+        }
+    }
+
+    @Test
+    public void negativeZeroEqualsZero()
+    {
+        assertTrue(matches(IFilterOperator.Type.EQUALS, 0.0, -0.0));
+        assertTrue(matches(IFilterOperator.Type.EQUALS, -0.0, 0.0));
+        assertFalse(matches(IFilterOperator.Type.NOTEQUALS, 0.0, -0.0));
+        assertFalse(matches(IFilterOperator.Type.GREATERTHAN, -0.0, 0.0));
+        assertFalse(matches(IFilterOperator.Type.LESSTHAN, 0.0, -0.0));
+        assertTrue(matches(IFilterOperator.Type.LESSTHANEQUALS, -0.0, 0.0));
+        assertTrue(matches(IFilterOperator.Type.GREATERTHANEQUALS, 0.0, -0.0));
+    }
+
+    /**
+     * @return If the value matches the filter; fails if the boxed and primitive predicates disagree
+     */
+    private static boolean matches(IFilterOperator.Type type, double operand, double value)
+    {
+        final List<NumberOperator<Double>> filters = Collections.singletonList(new NumberOperator<>(type, operand));
+        final boolean primitive = FilterCompiler.compileDouble(filters).test(value);
+        assertEquals(type + " " + operand + " at " + value, primitive, FilterCompiler.compileValuePredicate(filters).test(value));
+        return primitive;
+    }
+
+    @Test
+    public void boxedAndPrimitiveValuesMatchTheSame()
+    {
+        // Every combination of up to two filters, as they're AND'd
+        final List<List<NumberOperator<Double>>> combinations = new ArrayList<>();
+        for (IFilterOperator.Type type : TYPES)
+        {
+            for (double operand : VALUES)
+            {
+                final NumberOperator<Double> first = new NumberOperator<>(type, operand);
+                combinations.add(Collections.singletonList(first));
+                for (IFilterOperator.Type type2 : TYPES)
+                {
+                    for (double operand2 : VALUES)
+                    {
+                        combinations.add(Arrays.asList(first, new NumberOperator<>(type2, operand2)));
+                    }
+                }
+            }
+        }
+
+        for (List<NumberOperator<Double>> filters : combinations)
+        {
+            final Predicate<Double> boxed = FilterCompiler.compile(filters, BOXED);
+            final Predicate<Double> primitive = FilterCompiler.compile(filters, PRIMITIVE);
+            final DoublePredicate doubles = FilterCompiler.compileDouble(filters);
+            for (double value : VALUES)
+            {
+                assertEquals(filters + " at " + value, boxed.test(value), primitive.test(value));
+                assertEquals(filters + " at " + value, boxed.test(value), doubles.test(value));
+            }
+        }
+    }
+
+    @Test
+    public void boxedIntegersMatchLikeDoubles()
+    {
+        final List<NumberOperator<Double>> filters = Arrays.asList(
+                new NumberOperator<>(IFilterOperator.Type.GREATERTHAN, 1.5),
+                new NumberOperator<>(IFilterOperator.Type.NOTEQUALS, 3.0));
+        final Predicate<Object> p = FilterCompiler.compileValuePredicate(filters);
+        assertFalse(p.test(1));
+        assertTrue(p.test(2));
+        assertFalse(p.test(3));
+        assertFalse(p.test(3L));
+        assertTrue(p.test(4L));
+        assertFalse(p.test(null));
+    }
+}
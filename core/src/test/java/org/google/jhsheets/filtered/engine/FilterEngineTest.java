@@ -0,0 +1,245 @@
+package org.google.jhsheets.filtered.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+import org.google.jhsheets.filtered.operators.DateOperator;
+import org.google.jhsheets.filtered.operators.EnumOperator;
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.operators.NumberOperator;
+import org.google.jhsheets.filtered.operators.StringOperator;
+import org.junit.Test;
+
+/**
+ * Checks that rows inserted, removed and updated through {@link FilterEngine#rowsInserted(int, int)},
+ * {@link FilterEngine#rowsRemoved(int, int)} and {@link FilterEngine#rowsUpdated(int, int)} give the 
+ * same matches as evaluating all the rows again
+ *
+ * @author JHS
+ */
+public class FilterEngineTest
+{
+    private static final ValueExtractor<Row> ID = ValueExtractor.ofInt(new ToIntFunction<Row>()
+    {
+        @Override
+        public int applyAsInt(Row row)
+        {
+            return row.id;
+        }
+    });
+
+    private static final ValueExtractor<Row> AMOUNT = ValueExtractor.ofDouble(new ToDoubleFunction<Row>()
+    {
+        @Override
+        public double applyAsDouble(Row row)
+        {
+            return row.amount;
+        }
+    });
+
+    private static final ValueExtractor<Row> NAME = ValueExtractor.of(new Function<Row, Object>()
+    {
+        @Override
+        public Object apply(Row row)
+        {
+            return row.name;
+        }
+    });
+
+    private static final ValueExtractor<Row> TYPE = ValueExtractor.of(new Function<Row, Object>()
+    {
+        @Override
+        public Object apply(Row row)
+        {
+            return row.type;
+        }
+    });
+
+    private static final ValueExtractor<Row> DATE = ValueExtractor.of(new Function<Row, Object>()
+    {
+        @Override
+        public Object apply(Row row)
+        {
+            return row.date;
+        }
+    });
+
+    private static final Executor CALLING_THREAD = new Executor()
+    {
+        @Override
+        public void execute(Runnable command)
+        {
+            command.run();
+        }
+    };
+
+    private static final int FILTER_SETS = 7;
+
+    private enum Type { A, B, C, D, E }
+
+    @Test
+    public void rowChangesWithoutColumnStore()
+    {
+        check(new Random(8), false, false);
+    }
+
+    @Test
+    public void rowChangesWithColumnStore()
+    {
+        check(new Random(9), true, false);
+    }
+
+    @Test
+    public void rowChangesWithTextIndex()
+    {
+        check(new Random(10), true, true);
+    }
+
+    private static void check(Random random, boolean columnStore, boolean textIndex)
+    {
+        final List<Row> rows = new ArrayList<>();
+        for (int i=0; i < 20000; i++)
+        {
+            rows.add(new Row(random));
+        }
+
+        final FilterEngine<Row> engine = new FilterEngine<>();
+        engine.setSource(rows);
+        engine.setColumnStoreEnabled(columnStore);
+        if (textIndex)
+        {
+            engine.indexText("name", NAME, CALLING_THREAD);
+        }
+
+        for (int i=0; i < 300; i++)
+        {
+            // Going back to earlier filters uses the cached results, which must also be kept up to date
+            final int filterSet = random.nextInt(FILTER_SETS);
+            setFilters(engine, filterSet);
+            if (random.nextBoolean())
+            {
+                engine.evaluate();
+            }
+
+            // Both small changes, and changes large enough to be applied to the indexes in a single pass
+            final int count = random.nextBoolean() ? 1 + random.nextInt(5) : 33 + random.nextInt(200);
+            final int from = random.nextInt(rows.size() - count + 1);
+            final String change;
+            switch (random.nextInt(3))
+            {
+                case 0:
+                {
+                    final List<Row> added = new ArrayList<>();
+                    for (int j=0; j < count; j++)
+                    {
+                        added.add(new Row(random));
+                    }
+                    rows.addAll(from, added);
+                    engine.rowsInserted(from, count);
+                    change = "insert";
+                    break;
+                }
+                case 1:
+                    rows.subList(from, from + count).clear();
+                    engine.rowsRemoved(from, count);
+                    change = "remove";
+                    break;
+                default:
+                    for (int j=from; j < from + count; j++)
+                    {
+                        rows.set(j, new Row(random));
+                    }
+                    engine.rowsUpdated(from, count);
+                    change = "update";
+                    break;
+            }
+
+            final String message = String.format("%s of %d rows at %d, filters %d", change, count, from, filterSet);
+            final BitSet expected = evaluateAll(rows, filterSet);
+            if (engine.hasMatches())
+            {
+                for (int r=0; r < rows.size(); r++)
+                {
+                    assertEquals(message, expected.get(r), engine.isMatch(r));
+                }
+            }
+            assertEquals(message, expected, engine.evaluate());
+        }
+    }
+
+    /**
+     * @return The matches of a new engine, which evaluates every row
+     */
+    private static BitSet evaluateAll(List<Row> rows, int filterSet)
+    {
+        final FilterEngine<Row> engine = new FilterEngine<>();
+        engine.setSource(rows);
+        engine.setResultCacheSize(0);
+        setFilters(engine, filterSet);
+        return engine.evaluate();
+    }
+
+    private static void setFilters(FilterEngine<Row> engine, int filterSet)
+    {
+        engine.clearColumnFilters();
+        switch (filterSet)
+        {
+            case 0:
+                // Narrow enough for the sorted index
+                engine.setColumnFilter("id", ID, Arrays.asList(
+                        new NumberOperator<>(IFilterOperator.Type.GREATERTHANEQUALS, 500), 
+                        new NumberOperator<>(IFilterOperator.Type.LESSTHANEQUALS, 505)));
+                break;
+            case 1:
+                engine.setColumnFilter("amount", AMOUNT, Collections.singletonList(new NumberOperator<>(IFilterOperator.Type.GREATERTHAN, 9.9)));
+                break;
+            case 2:
+                engine.setColumnFilter("type", TYPE, Collections.singletonList(EnumOperator.in(Arrays.asList(Type.B, Type.D))));
+                break;
+            case 3:
+                engine.setColumnFilter("name", NAME, Collections.singletonList(new StringOperator(IFilterOperator.Type.STARTSWITH, "n12")));
+                break;
+            case 4:
+                engine.setColumnFilter("date", DATE, Collections.singletonList(new DateOperator(IFilterOperator.Type.AFTER, new Date(99000))));
+                break;
+            case 5:
+                engine.setColumnFilter("id", ID, Collections.singletonList(new NumberOperator<>(IFilterOperator.Type.LESSTHAN, 300)));
+                engine.setColumnFilter("type", TYPE, Collections.singletonList(EnumOperator.notIn(Arrays.asList(Type.A, null))));
+                engine.setColumnFilter("name", NAME, Collections.singletonList(new StringOperator(IFilterOperator.Type.CONTAINS, "23")));
+                break;
+            default:
+                engine.setColumnFilter("date", DATE, Collections.singletonList(new DateOperator(IFilterOperator.Type.BEFORE, new Date(5000))));
+                engine.setColumnFilter("amount", AMOUNT, Collections.singletonList(new NumberOperator<>(IFilterOperator.Type.EQUALS, 0.0)));
+                break;
+        }
+    }
+
+    private static final class Row
+    {
+        final int id;
+        final double amount;
+        final String name;
+        final Type type;
+        final Date date;
+
+        Row(Random random)
+        {
+            id = random.nextInt(1000);
+            amount = random.nextInt(50) == 0 ? Double.NaN : random.nextInt(20) == 0 ? -0.0 : random.nextDouble() * 10;
+            name = random.nextInt(30) == 0 ? null : "n" + random.nextInt(5000);
+            type = random.nextInt(10) == 0 ? null : Type.values()[random.nextInt(Type.values().length)];
+            date = random.nextInt(10) == 0 ? null : new Date(random.nextInt(100000));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.google.jhsheets.filtered.engine;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.google.jhsheets.filtered.operators.EnumOperator;
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.operators.NumberOperator;
+import org.google.jhsheets.filtered.operators.StringOperator;
+import org.junit.Test;
+
+/**
+ * Checks that filters found to be narrower than others never match a value the others don't
+ *
+ * @author JHS
+ */
+public class FilterRefinementTest
+{
+    private static final IFilterOperator.Type[] TEXT_TYPES = {
+        IFilterOperator.Type.CONTAINS, IFilterOperator.Type.STARTSWITH, IFilterOperator.Type.ENDSWITH,
+        IFilterOperator.Type.EQUALS, IFilterOperator.Type.NOTEQUALS };
+
+    private static final IFilterOperator.Type[] NUMBER_TYPES = {
+        IFilterOperator.Type.EQUALS, IFilterOperator.Type.NOTEQUALS,
+        IFilterOperator.Type.GREATERTHAN, IFilterOperator.Type.GREATERTHANEQUALS,
+        IFilterOperator.Type.LESSTHAN, IFilterOperator.Type.LESSTHANEQUALS };
+
+    private enum Color { RED, GREEN, BLUE }
+
+    @Test
+    public void narrowerText()
+    {
+        assertTrue(isNarrower(new StringOperator(IFilterOperator.Type.CONTAINS, "abc"), new StringOperator(IFilterOperator.Type.CONTAINS, "ab")));
+        assertTrue(isNarrower(new StringOperator(IFilterOperator.Type.STARTSWITH, "abc"), new StringOperator(IFilterOperator.Type.CONTAINS, "bc")));
+        assertFalse(isNarrower(new StringOperator(IFilterOperator.Type.CONTAINS, "ab"), new StringOperator(IFilterOperator.Type.CONTAINS, "abc")));
+        assertFalse(isNarrower(new StringOperator(IFilterOperator.Type.ENDSWITH, "ab"), new StringOperator(IFilterOperator.Type.STARTSWITH, "ab")));
+    }
+
+    @Test
+    public void narrowerRange()
+    {
+        assertTrue(isNarrower(new NumberOperator<>(IFilterOperator.Type.GREATERTHAN, 5), new NumberOperator<>(IFilterOperator.Type.GREATERTHAN, 3)));
+        assertTrue(isNarrower(new NumberOperator<>(IFilterOperator.Type.EQUALS, 4), new NumberOperator<>(IFilterOperator.Type.LESSTHANEQUALS, 4)));
+        assertFalse(isNarrower(new NumberOperator<>(IFilterOperator.Type.GREATERTHAN, 3), new NumberOperator<>(IFilterOperator.Type.GREATERTHAN, 5)));
+        // NaN only matches NOTEQUALS, so NOTEQUALS isn't narrower than a range
+        assertFalse(isNarrower(new NumberOperator<>(IFilterOperator.Type.NOTEQUALS, 4.0), new NumberOperator<>(IFilterOperator.Type.LESSTHANEQUALS, Double.POSITIVE_INFINITY)));
+    }
+
+    @Test
+    public void narrowerEnums()
+    {
+        final EnumOperator<Color> red = EnumOperator.in(Arrays.asList(Color.RED));
+        final EnumOperator<Color> redGreen = EnumOperator.in(Arrays.asList(Color.RED, Color.GREEN));
+        final EnumOperator<Color> notBlue = EnumOperator.notIn(Arrays.asList(Color.BLUE));
+        assertTrue(isNarrower(red, redGreen));
+        assertFalse(isNarrower(redGreen, red));
+        // Null isn't blue, so NOTIN BLUE matches null rows, which IN RED,GREEN doesn't
+        assertTrue(isNarrower(redGreen, notBlue));
+        assertFalse(isNarrower(notBlue, redGreen));
+        assertTrue(isNarrower(EnumOperator.in(Arrays.asList(Color.RED, null)), notBlue));
+    }
+
+    private static boolean isNarrower(IFilterOperator<?> narrower, IFilterOperator<?> wider)
+    {
+        return FilterRefinement.isNarrower(Collections.singletonList(narrower), Collections.singletonList(wider));
+    }
+
+    @Test
+    public void impliedFiltersAreSound()
+    {
+        final Random random = new Random(10);
+
+        final List<Object> strings = new ArrayList<>();
+        strings.add(null);
+        for (int i=0; i < 300; i++)
+        {
+            final StringBuilder b = new StringBuilder();
+            final int n = random.nextInt(5);
+            for (int j=0; j < n; j++)
+            {
+                b.append("ab".charAt(random.nextInt(2)));
+            }
+            strings.add(b.toString());
+        }
+
+        final List<Object> numbers = new ArrayList<>();
+        numbers.add(null);
+        for (int i=-20; i <= 20; i++)
+        {
+            numbers.add(i / 2.0);
+        }
+        numbers.addAll(Arrays.asList(-0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY));
+
+        int implied = 0;
+        for (int i=0; i < 50000; i++)
+        {
+            final IFilterOperator<?> a;
+            final IFilterOperator<?> b;
+            final List<Object> values;
+            if (random.nextBoolean())
+            {
+                a = new StringOperator(TEXT_TYPES[random.nextInt(TEXT_TYPES.length)], (String)strings.get(1 + random.nextInt(30)));
+                b = new StringOperator(TEXT_TYPES[random.nextInt(TEXT_TYPES.length)], (String)strings.get(1 + random.nextInt(30)));
+                values = strings;
+            }
+            else
+            {
+                a = new NumberOperator<>(NUMBER_TYPES[random.nextInt(NUMBER_TYPES.length)], (Double)numbers.get(1 + random.nextInt(numbers.size() - 1)));
+                b = new NumberOperator<>(NUMBER_TYPES[random.nextInt(NUMBER_TYPES.length)], (Double)numbers.get(1 + random.nextInt(numbers.size() - 1)));
+                values = numbers;
+            }
+            if (FilterRefinement.isNarrower(Collections.singletonList(a), Collections.singletonList(b)) == false)
+            {
+                continue;
+            }
+            implied++;
+
+            final Predicate<Object> pa = FilterCompiler.compileValuePredicate(Collections.singletonList(a));
+            final Predicate<Object> pb = FilterCompiler.compileValuePredicate(Collections.singletonList(b));
+            for (Object value : values)
+            {
+                assertFalse(a + " is narrower than " + b + ", but only it matches " + value, pa.test(value) && pb.test(value) == false);
+            }
+        }
+        assertTrue(implied > 1000);
+    }
+}
@@ -0,0 +1,100 @@
+package org.google.jhsheets.filtered.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.operators.StringOperator;
+import org.junit.Test;
+
+/**
+ * Checks the values found by a {@link PrefixIndex} against testing every row
+ *
+ * @author JHS
+ */
+public class PrefixIndexTest
+{
+    private static final ValueExtractor<Object> IDENTITY = ValueExtractor.of(new Function<Object, Object>()
+    {
+        @Override
+        public Object apply(Object value)
+        {
+            return value;
+        }
+    });
+
+    @Test
+    public void prefixAndSuffixLookups()
+    {
+        final Random random = new Random(5);
+        final List<Object> rows = new ArrayList<>();
+        for (int i=0; i < 3000; i++)
+        {
+            rows.add(randomText(random));
+        }
+        // Values that aren't strings are matched by their text
+        rows.add(12345);
+        rows.add(null);
+
+        final ColumnVector vector = ColumnVector.materialize(rows, IDENTITY, Collections.<IFilterOperator<?>>emptyList());
+        assertTrue(PrefixIndex.isIndexable(vector));
+        final ColumnVector.DictionaryVector dictionary = (ColumnVector.DictionaryVector)vector;
+        final PrefixIndex index = PrefixIndex.build(dictionary);
+
+        for (int i=0; i < 500; i++)
+        {
+            final List<IFilterOperator<?>> filters = new ArrayList<>();
+            filters.add(new StringOperator(random.nextBoolean() ? IFilterOperator.Type.STARTSWITH : IFilterOperator.Type.ENDSWITH, randomText(random)));
+            if (random.nextBoolean())
+            {
+                filters.add(new StringOperator(random.nextBoolean() ? IFilterOperator.Type.STARTSWITH : IFilterOperator.Type.ENDSWITH, randomText(random)));
+            }
+            if (random.nextInt(4) == 0)
+            {
+                filters.add(new StringOperator(IFilterOperator.Type.STARTSWITH, "123"));
+            }
+
+            final BitSet expected = new BitSet();
+            for (int r=0; r < rows.size(); r++)
+            {
+                final Object value = rows.get(r);
+                boolean match = value != null;
+                for (IFilterOperator<?> filter : filters)
+                {
+                    final String text = (String)filter.getValue();
+                    match = match && (filter.getType() == IFilterOperator.Type.STARTSWITH
+                            ? value.toString().startsWith(text) : value.toString().endsWith(text));
+                }
+                if (match) expected.set(r);
+            }
+            assertEquals(filters.toString(), expected, dictionary.rowsWithCodes(index.lookup(filters), null));
+        }
+    }
+
+    @Test
+    public void otherFiltersDontUseTheIndex()
+    {
+        final List<Object> rows = new ArrayList<Object>(Collections.singletonList("abc"));
+        final PrefixIndex index = PrefixIndex.build((ColumnVector.DictionaryVector)ColumnVector.materialize(rows, IDENTITY, Collections.<IFilterOperator<?>>emptyList()));
+        assertNull(index.lookup(Collections.singletonList(new StringOperator(IFilterOperator.Type.CONTAINS, "b"))));
+    }
+
+    private static String randomText(Random random)
+    {
+        final StringBuilder b = new StringBuilder();
+        final int n = random.nextInt(6);
+        for (int i=0; i < n; i++)
+        {
+            b.append("abc".charAt(random.nextInt(3)));
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,204 @@
+package org.google.jhsheets.filtered.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+import org.google.jhsheets.filtered.operators.DateOperator;
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.operators.NumberOperator;
+import org.junit.Test;
+
+/**
+ * Checks the rows found by a {@link SortedIndex} against testing every row, 
+ * as built and after rows are inserted, removed and updated
+ *
+ * @author JHS
+ */
+public class SortedIndexTest
+{
+    private static final IFilterOperator.Type[] NUMBER_TYPES = {
+        IFilterOperator.Type.EQUALS, IFilterOperator.Type.NOTEQUALS,
+        IFilterOperator.Type.GREATERTHAN, IFilterOperator.Type.GREATERTHANEQUALS,
+        IFilterOperator.Type.LESSTHAN, IFilterOperator.Type.LESSTHANEQUALS };
+
+    private static final IFilterOperator.Type[] DATE_TYPES = {
+        IFilterOperator.Type.EQUALS, IFilterOperator.Type.NOTEQUALS,
+        IFilterOperator.Type.AFTER, IFilterOperator.Type.AFTERON,
+        IFilterOperator.Type.BEFORE, IFilterOperator.Type.BEFOREON };
+
+    @Test
+    public void intLookups()
+    {
+        final List<Object> values = new ArrayList<>();
+        final List<IFilterOperator<?>> operators = new ArrayList<>();
+        for (int i=-10; i < 90; i++)
+        {
+            values.add(i);
+            for (IFilterOperator.Type type : NUMBER_TYPES)
+            {
+                operators.add(new NumberOperator<>(type, i));
+            }
+        }
+        operators.add(new NumberOperator<>(IFilterOperator.Type.GREATERTHAN, Integer.MAX_VALUE));
+        operators.add(new NumberOperator<>(IFilterOperator.Type.LESSTHAN, Integer.MIN_VALUE));
+
+        check(new Random(1), values, operators, ValueExtractor.ofInt(new ToIntFunction<Object>()
+        {
+            @Override
+            public int applyAsInt(Object value)
+            {
+                return (Integer)value;
+            }
+        }));
+    }
+
+    @Test
+    public void doubleLookups()
+    {
+        final List<Object> values = new ArrayList<>();
+        final List<IFilterOperator<?>> operators = new ArrayList<>();
+        for (int i=-20; i < 20; i++)
+        {
+            values.add(i / 4.0);
+        }
+        values.addAll(Arrays.<Object>asList(Double.NaN, -0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY));
+        for (Object value : values)
+        {
+            for (IFilterOperator.Type type : NUMBER_TYPES)
+            {
+                operators.add(new NumberOperator<>(type, (Double)value));
+            }
+        }
+
+        check(new Random(2), values, operators, ValueExtractor.ofDouble(new ToDoubleFunction<Object>()
+        {
+            @Override
+            public double applyAsDouble(Object value)
+            {
+                return (Double)value;
+            }
+        }));
+    }
+
+    @Test
+    public void dateLookups()
+    {
+        final List<Object> values = new ArrayList<>();
+        final List<IFilterOperator<?>> operators = new ArrayList<>();
+        values.add(null);
+        for (int i=0; i < 50; i++)
+        {
+            final Date date = new Date(i * 60000L);
+            values.add(date);
+            for (IFilterOperator.Type type : DATE_TYPES)
+            {
+                operators.add(new DateOperator(type, date));
+            }
+        }
+
+        check(new Random(3), values, operators, ValueExtractor.of(new Function<Object, Object>()
+        {
+            @Override
+            public Object apply(Object value)
+            {
+                return value;
+            }
+        }));
+    }
+
+    /**
+     * @param values The values the rows are picked from
+     * @param operators The operators the filters are made of
+     */
+    private static void check(Random random, List<Object> values, List<IFilterOperator<?>> operators, ValueExtractor<Object> extractor)
+    {
+        final List<Object> rows = new ArrayList<>();
+        for (int i=0; i < 3000; i++)
+        {
+            rows.add(values.get(random.nextInt(values.size())));
+        }
+
+        final ColumnVector vector = ColumnVector.materialize(rows, extractor, operators);
+        assertTrue(SortedIndex.isIndexable(vector));
+        final SortedIndex index = SortedIndex.build(vector);
+        checkLookups(random, rows, operators, extractor, index);
+
+        for (int i=0; i < 200; i++)
+        {
+            // Both changes applied one entry at a time, and in a single pass
+            final int count = random.nextBoolean() ? 1 + random.nextInt(5) : 50 + random.nextInt(100);
+            final int from = random.nextInt(rows.size() - count + 1);
+            switch (random.nextInt(3))
+            {
+                case 0:
+                {
+                    final List<Object> added = new ArrayList<>();
+                    for (int j=0; j < count; j++)
+                    {
+                        added.add(values.get(random.nextInt(values.size())));
+                    }
+                    rows.addAll(from, added);
+                    vector.insert(from, added, extractor);
+                    index.rowsInserted(from, count);
+                    break;
+                }
+                case 1:
+                    index.rowsRemoved(from, count);
+                    vector.remove(from, count);
+                    rows.subList(from, from + count).clear();
+                    break;
+                default:
+                    index.removeEntries(from, from + count);
+                    for (int j=from; j < from + count; j++)
+                    {
+                        rows.set(j, values.get(random.nextInt(values.size())));
+                    }
+                    vector.update(from, rows.subList(from, from + count), extractor);
+                    index.addEntries(from, from + count);
+                    break;
+            }
+            checkLookups(random, rows, operators, extractor, index);
+        }
+    }
+
+    private static void checkLookups(Random random, List<Object> rows, List<IFilterOperator<?>> operators, ValueExtractor<Object> extractor, SortedIndex index)
+    {
+        int found = 0;
+        for (int i=0; i < 20; i++)
+        {
+            final List<IFilterOperator<?>> filters = new ArrayList<>();
+            final int count = 1 + random.nextInt(2);
+            for (int j=0; j < count; j++)
+            {
+                filters.add(operators.get(random.nextInt(operators.size())));
+            }
+
+            final BitSet rowsFound = index.lookup(filters, Integer.MAX_VALUE);
+            if (rowsFound == null)
+            {
+                continue;
+            }
+            found++;
+
+            final Predicate<Object> p = FilterCompiler.compile(filters, extractor);
+            final BitSet expected = new BitSet();
+            for (int r=0; r < rows.size(); r++)
+            {
+                if (p.test(rows.get(r))) expected.set(r);
+            }
+            assertEquals(filters.toString(), expected, rowsFound);
+        }
+        assertTrue(found > 0);
+    }
+}
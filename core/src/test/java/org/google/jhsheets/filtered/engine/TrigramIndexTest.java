@@ -0,0 +1,121 @@
+package org.google.jhsheets.filtered.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.operators.StringOperator;
+import org.junit.Test;
+
+/**
+ * Checks the rows found by a {@link TrigramIndex} against testing every row, 
+ * as built and after rows are inserted, removed and updated
+ *
+ * @author JHS
+ */
+public class TrigramIndexTest
+{
+    @Test
+    public void containsLookups()
+    {
+        final Random random = new Random(4);
+        final List<String> rows = new ArrayList<>();
+        for (int i=0; i < 2000; i++)
+        {
+            rows.add(randomRow(random));
+        }
+
+        final TrigramIndex index = TrigramIndex.build(rows.toArray(new String[rows.size()]), 0);
+        checkLookups(random, rows, index);
+
+        for (int i=0; i < 200; i++)
+        {
+            final int count = 1 + random.nextInt(20);
+            final int from = random.nextInt(rows.size() - count + 1);
+            final String[] changed = new String[count];
+            for (int j=0; j < count; j++)
+            {
+                changed[j] = randomRow(random);
+            }
+            switch (random.nextInt(3))
+            {
+                case 0:
+                    rows.addAll(from, Arrays.asList(changed));
+                    index.insert(from, changed);
+                    break;
+                case 1:
+                    rows.subList(from, from + count).clear();
+                    index.remove(from, count);
+                    break;
+                default:
+                    for (int j=0; j < count; j++)
+                    {
+                        rows.set(from + j, changed[j]);
+                    }
+                    index.update(from, changed);
+                    break;
+            }
+            assertEquals(rows.size(), index.size());
+            checkLookups(random, rows, index);
+        }
+    }
+
+    @Test
+    public void onlyContainsFiltersUseTheIndex()
+    {
+        final TrigramIndex index = TrigramIndex.build(new String[] { "abc", "bcd" }, 0);
+        assertNull(index.lookup(Collections.singletonList(new StringOperator(IFilterOperator.Type.STARTSWITH, "abc"))));
+        assertEquals(BitSet.valueOf(new long[] { 2 }), index.lookup(Collections.singletonList(new StringOperator(IFilterOperator.Type.CONTAINS, "cd"))));
+    }
+
+    private static String randomRow(Random random)
+    {
+        return random.nextInt(20) == 0 ? null : randomText(random);
+    }
+
+    /**
+     * @return Short text made of few letters, so the values share many trigrams
+     */
+    private static String randomText(Random random)
+    {
+        final StringBuilder b = new StringBuilder();
+        final int n = random.nextInt(8);
+        for (int i=0; i < n; i++)
+        {
+            b.append("abcd".charAt(random.nextInt(4)));
+        }
+        return b.toString();
+    }
+
+    private static void checkLookups(Random random, List<String> rows, TrigramIndex index)
+    {
+        for (int i=0; i < 20; i++)
+        {
+            final List<IFilterOperator<?>> filters = new ArrayList<>();
+            filters.add(new StringOperator(IFilterOperator.Type.CONTAINS, randomText(random)));
+            if (random.nextBoolean())
+            {
+                filters.add(new StringOperator(IFilterOperator.Type.CONTAINS, randomText(random)));
+            }
+
+            final BitSet expected = new BitSet();
+            for (int r=0; r < rows.size(); r++)
+            {
+                boolean match = rows.get(r) != null;
+                for (IFilterOperator<?> filter : filters)
+                {
+                    match = match && rows.get(r).contains((String)filter.getValue());
+                }
+                if (match) expected.set(r);
+            }
+            assertEquals(filters.toString(), expected, index.lookup(filters));
+        }
+    }
+}
@@ -0,0 +1,1162 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
+import javafx.event.EventHandler;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+import org.google.jhsheets.filtered.engine.FilterEngine;
+import org.google.jhsheets.filtered.engine.ValueExtractor;
+import org.google.jhsheets.filtered.model.FilterSnapshot;
+import org.google.jhsheets.filtered.model.FilterState;
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.tablecolumn.AbstractFilterableTableColumn;
+import org.google.jhsheets.filtered.tablecolumn.ColumnFilterEvent;
+import org.google.jhsheets.filtered.tablecolumn.FilterableStringTableColumn;
+import org.google.jhsheets.filtered.tablecolumn.editor.IFilterEditor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TableView} that identifies any {@link AbstractFilterableTableColumn}'s added to it, 
+ * and fires a single event when any of them have their filters changed.
+ * <br/><br/>
+ * To listen for changes the table's filters, register a {@link ColumnFilterEvent#FILTER_CHANGED_EVENT}
+ * with {@link #addEventFilter(javafx.event.EventType, javafx.event.EventHandler) }
+ * or {@link #addEventHandler(javafx.event.EventType, javafx.event.EventHandler) }
+ * <br/><br/>
+ * To have the table filter the data for you, set the unfiltered data with {@link #setSourceItems(ObservableList)}.
+ * The table will then display a filtered projection of the source items, which is updated whenever
+ * a column's filter changes.  Use {@link AbstractFilterableTableColumn#setFilterValueExtractor(Function)}
+ * to supply a fast way to fetch a column's value from a row.
+ * <br/><br/>
+ * The table builds any indexes its columns request (ie: {@link FilterableStringTableColumn#setTextIndexEnabled(boolean)})
+ * on a background thread.  With {@link #setAsyncFilteringEnabled(boolean)}, the filters are also evaluated 
+ * on a background thread, and only the result of the latest filter change is displayed.
+ * <br/><br/>
+ * To change the filters of several columns at once, make the changes in {@link #batchFilterChanges(Runnable)}, 
+ * or between {@link #beginFilterChanges()} and {@link #commitFilterChanges()}.  The data is then filtered once, 
+ * and a single event is fired for all the changed columns.
+ * <br/><br/>
+ * {@link #getFilterSnapshot()} returns an immutable snapshot of all the columns' filters, which can be read 
+ * from any thread.  Its version increases with each change, so a consumer filtering on another thread
+ * can tell if its result is stale.
+ * 
+ * @author JHS
+ */
+public class FilteredTableView<S>
+extends TableView<S>
+{
+    private static final Logger logger = LoggerFactory.getLogger(FilteredTableView.class);
+    
+    /** List of filterable columns with a filter applied */
+    private ObservableList<AbstractFilterableTableColumn<?,?,?,?>> filteredColumns;
+    
+    /** The filters of all the filterable columns; replaced, with a higher version, when they change */
+    private volatile FilterSnapshot filterSnapshot = FilterSnapshot.EMPTY;
+    
+    /** Unfiltered data; when set, the table's items are the filtered projection of it */
+    private final ObjectProperty<ObservableList<S>> sourceItems = new SimpleObjectProperty<>();
+    
+    /** The filtered projection of {@link #sourceItems}, in source order */
+    private final ObservableList<S> filteredItems = FXCollections.observableArrayList();
+    
+    /** The filtered items in the table's sort order; the table's items when filtering the source items */
+    private final SortedList<S> sortedItems = new SortedList<>(filteredItems);
+    
+    /** The engine filtering the source items; replaced when the source items or the threading change */
+    private FilterSession filterSession;
+    
+    /** Incremented by each request to filter the source items; the results of earlier requests are stale */
+    private final AtomicInteger latestGeneration = new AtomicInteger();
+    
+    /** The request the filtered items were last set from */
+    private int displayedGeneration;
+    
+    /** Depth of the nested batches of filter changes; the changes are applied when the outermost batch is committed */
+    private int batchDepth;
+    
+    /** Columns whose filters changed in the current batch */
+    private final Set<AbstractFilterableTableColumn<?,?,?,?>> batchedColumns = new LinkedHashSet<>();
+    
+    /** If the source items must be filtered when the current batch is committed */
+    private boolean batchedRefilter;
+    
+    /** If the filter engine should materialize the filtered columns into arrays */
+    private final BooleanProperty columnStoreEnabled = new SimpleBooleanProperty(false);
+    
+    /** If the filter engine should evaluate large lists on all cores */
+    private final BooleanProperty parallelFilteringEnabled = new SimpleBooleanProperty(false);
+    
+    /** If the filters should be evaluated off the FX thread */
+    private final BooleanProperty asyncFilteringEnabled = new SimpleBooleanProperty(false);
+    
+    /** Number of the most recently used filter combinations whose results are cached */
+    private final IntegerProperty resultCacheSize = new SimpleIntegerProperty(FilterEngine.DEFAULT_RESULT_CACHE_SIZE);
+    
+    /** Builds the column indexes; its thread stops when idle */
+    private final ThreadPoolExecutor backgroundExecutor = newDaemonExecutor("FilteredTableView background");
+    
+    /** Evaluates the filters when filtering asynchronously; its thread stops when idle */
+    private final ThreadPoolExecutor filterExecutor = newDaemonExecutor("FilteredTableView filter");
+    
+    
+    public FilteredTableView(ObservableList<S> ol)
+    {
+        this();
+        super.setItems(ol);
+    }
+    
+    public FilteredTableView()
+    {
+        super();
+        
+        filteredColumns = FXCollections.observableArrayList();
+        filterSession = new FilterSession(null, false);
+        
+        // The filtered items stay in source order, so the filter results can be applied to them by source position
+        sortedItems.comparatorProperty().bind(comparatorProperty());
+        
+        // Execute the filteringChanged runnable
+        // And, if a column has a filter on it, make sure that column is in our filteredColumns list
+        final EventHandler<ColumnFilterEvent<?,?,?,?>> columnFilteredEventHandler = new EventHandler<ColumnFilterEvent<?,?,?,?>>() 
+        {
+            @Override
+            public void handle(ColumnFilterEvent<?,?,?,?> event) 
+            {
+                // Keep track of which TableColumn's are currently filtered
+                final AbstractFilterableTableColumn<?,?,?,?> col = event.sourceColumn();
+                
+                if (col.isFiltered() == true && filteredColumns.contains(col) == false)
+                {
+                    filteredColumns.add(col);
+                    logger.debug(String.format("Filter added on column: %s", col.getText()));
+                }
+                else if (col.isFiltered() == false && filteredColumns.contains(col) == true)
+                {
+                    filteredColumns.remove(col);
+                    logger.debug(String.format("Filter removed on column: %s", col.getText()));
+                }
+                updateFilterSnapshot();
+                
+                if (getSourceItems() != null)
+                {
+                    updateEngineFilter(col);
+                    updateTextIndex(col);
+                    applyFilters();
+                }
+                
+                // Forward event, or a single event for the whole batch once it's committed
+                if (batchDepth > 0)
+                {
+                    batchedColumns.remove(col);
+                    batchedColumns.add(col);
+                }
+                else
+                {
+                    fireEvent(newTableEvent(col, Collections.<AbstractFilterableTableColumn<?,?,?,?>>singletonList(col)));
+                }
+            }
+        };
+        
+        // Build or drop a column's text index when it's toggled
+        final ChangeListener<Boolean> textIndexListener = new ChangeListener<Boolean>() 
+        {
+            @Override
+            public void changed(ObservableValue<? extends Boolean> ov, Boolean oldVal, Boolean newVal) 
+            {
+                updateTextIndex((AbstractFilterableTableColumn<?,?,?,?>)((ReadOnlyProperty<?>)ov).getBean());
+            }
+        };
+        
+        // Make sure any filterable columns on this table have the columnFilterEventHandler
+        getColumns().addListener(new ListChangeListener<TableColumn<?,?>>() 
+        {
+            @Override
+            public void onChanged(Change<? extends TableColumn<?,?>> change) 
+            {
+                boolean engineChanged = false;
+                while (change.next())
+                {
+                    // Drag-n-dropping a column fires a remove and an add.
+                    if (change.wasRemoved())
+                    {
+                        for (final TableColumn<?,?> col : change.getRemoved())
+                        {
+                            if (col instanceof AbstractFilterableTableColumn)
+                            {
+                                logger.debug(String.format("No longer listening for filter changes on column: %s", col.getText()));
+                                final AbstractFilterableTableColumn<?,?,?,?> fcol = (AbstractFilterableTableColumn<?,?,?,?>)col;
+                                fcol.removeEventHandler(ColumnFilterEvent.FILTER_CHANGED_EVENT, columnFilteredEventHandler);
+                                // Keep the index of a column that was only moved
+                                removeEngineFilter(fcol, getColumns().contains(fcol) == false);
+                                engineChanged = true;
+                                
+                                if (fcol instanceof FilterableStringTableColumn)
+                                {
+                                    ((FilterableStringTableColumn<?,?>)fcol).textIndexEnabledProperty().removeListener(textIndexListener);
+                                }
+                            }
+                        }
+                    }
+                    if (change.wasAdded())
+                    {
+                        for (final TableColumn<?,?> col : change.getAddedSubList())
+                        {
+                            if (col instanceof AbstractFilterableTableColumn)
+                            {
+                                logger.debug(String.format("Now listening for filter changes on column: %s", col.getText()));
+                                final AbstractFilterableTableColumn<?,?,?,?> fcol = (AbstractFilterableTableColumn<?,?,?,?>)col;
+                                fcol.addEventHandler(ColumnFilterEvent.FILTER_CHANGED_EVENT, columnFilteredEventHandler);
+                                updateEngineFilter(fcol);
+                                // Its filters may have been set before it was added
+                                if (fcol.isFiltered() && filteredColumns.contains(fcol) == false)
+                                {
+                                    filteredColumns.add(fcol);
+                                }
+                                engineChanged = true;
+                                
+                                if (fcol instanceof FilterableStringTableColumn)
+                                {
+                                    ((FilterableStringTableColumn<?,?>)fcol).textIndexEnabledProperty().addListener(textIndexListener);
+                                    updateTextIndex(fcol);
+                                }
+                            }
+                        }
+                    }
+                }
+                
+                updateFilterSnapshot();
+                if (engineChanged && getSourceItems() != null)
+                {
+                    applyFilters();
+                }
+            }
+        });
+        
+        // Keep the filtered projection in sync whenever the source data changes
+        final ListChangeListener<S> sourceChangeListener = new ListChangeListener<S>() 
+        {
+            @Override
+            public void onChanged(Change<? extends S> change) 
+            {
+                // The changes are copied, so they can be applied to the engine's own copy of the rows
+                final FilterSession session = filterSession;
+                final List<ListEdit<S>> changes = new ArrayList<>();
+                while (change.next())
+                {
+                    if (change.wasPermutated())
+                    {
+                        // All the rows are evaluated again anyway
+                        changes.clear();
+                        changes.add(ListEdit.<S>permuted(session.async ? new ArrayList<S>(change.getList()) : null));
+                        break;
+                    }
+                    else if (change.wasUpdated())
+                    {
+                        changes.add(ListEdit.<S>updated(change.getFrom(), change.getTo()));
+                    }
+                    else
+                    {
+                        changes.add(ListEdit.<S>replaced(change.getFrom(), change.getRemovedSize(), new ArrayList<S>(change.getAddedSubList())));
+                    }
+                }
+                
+                session.execute(new Runnable() 
+                {
+                    @Override
+                    public void run() 
+                    {
+                        session.sourceChanged(changes);
+                    }
+                });
+            }
+        };
+        
+        columnStoreEnabled.addListener(new ChangeListener<Boolean>() 
+        {
+            @Override
+            public void changed(ObservableValue<? extends Boolean> ov, Boolean oldVal, final Boolean newVal) 
+            {
+                final FilterSession session = filterSession;
+                session.execute(new Runnable() 
+                {
+                    @Override
+                    public void run() 
+                    {
+                        session.engine.setColumnStoreEnabled(newVal);
+                    }
+                });
+            }
+        });
+        
+        parallelFilteringEnabled.addListener(new ChangeListener<Boolean>() 
+        {
+            @Override
+            public void changed(ObservableValue<? extends Boolean> ov, Boolean oldVal, final Boolean newVal) 
+            {
+                final FilterSession session = filterSession;
+                session.execute(new Runnable() 
+                {
+                    @Override
+                    public void run() 
+                    {
+                        session.engine.setParallelPool(newVal ? ForkJoinPool.commonPool() : null);
+                    }
+                });
+            }
+        });
+        
+        resultCacheSize.addListener(new ChangeListener<Number>() 
+        {
+            @Override
+            public void changed(ObservableValue<? extends Number> ov, Number oldVal, final Number newVal) 
+            {
+                final FilterSession session = filterSession;
+                session.execute(new Runnable() 
+                {
+                    @Override
+                    public void run() 
+                    {
+                        session.engine.setResultCacheSize(Math.max(newVal.intValue(), 0));
+                    }
+                });
+            }
+        });
+        
+        // The engine is only ever used by one thread, so switching threads starts a new one
+        asyncFilteringEnabled.addListener(new ChangeListener<Boolean>() 
+        {
+            @Override
+            public void changed(ObservableValue<? extends Boolean> ov, Boolean oldVal, Boolean newVal) 
+            {
+                resetFilterSession();
+            }
+        });
+        
+        sourceItems.addListener(new ChangeListener<ObservableList<S>>() 
+        {
+            @Override
+            public void changed(ObservableValue<? extends ObservableList<S>> ov, ObservableList<S> oldVal, ObservableList<S> newVal) 
+            {
+                if (oldVal != null)
+                {
+                    oldVal.removeListener(sourceChangeListener);
+                }
+                
+                resetFilterSession();
+                
+                if (newVal != null)
+                {
+                    newVal.addListener(sourceChangeListener);
+                    FilteredTableView.super.setItems(sortedItems);
+                }
+            }
+        });
+    }
+    
+    /**
+     * @return Observable list containing any {@link AbstractFilterableTableColumn}'s that have a filter applied
+     */
+    public ObservableList<AbstractFilterableTableColumn<?,?,?,?>> getFilteredColumns()
+    {
+        return filteredColumns;
+    }
+    
+    /**
+     * When set, this table displays only the source items that match the column filters,
+     * and re-filters them whenever a column filter changes.
+     * <br/><br/>
+     * Rows added, removed, replaced or updated in the source list are evaluated on their own, and 
+     * added to or removed from the table's items, without filtering the rest of the source list again.
+     * Updates are only reported by lists created with an extractor 
+     * (ie: {@link FXCollections#observableArrayList(javafx.util.Callback)}); otherwise call {@link #refilter()}.
+     * Set to null to manage the table's items yourself.
+     * <br/><br/>
+     * The table's items are then a {@link SortedList} of the filtered items, bound to the table's 
+     * {@link #comparatorProperty()}, so sorting the table doesn't reorder the filtered items themselves.
+     * 
+     * @return Property holding the unfiltered data
+     */
+    public ObjectProperty<ObservableList<S>> sourceItemsProperty()
+    {
+        return sourceItems;
+    }
+    
+    /**
+     * @param items The unfiltered data to display
+     * @see #sourceItemsProperty()
+     */
+    public void setSourceItems(ObservableList<S> items)
+    {
+        sourceItems.set(items);
+    }
+    
+    /**
+     * @return The unfiltered data, or null if the table isn't filtering the data itself
+     */
+    public ObservableList<S> getSourceItems()
+    {
+        return sourceItems.get();
+    }
+    
+    /**
+     * When enabled, each filtered column is copied into a primitive array (or a dictionary
+     * of its distinct values), and the filters are evaluated by scanning the arrays 
+     * instead of fetching the values from each row.
+     * This uses more memory, but is much faster when filtering a large number of rows.
+     * The arrays are updated in place when source rows are added, removed or updated, 
+     * and rebuilt when the source list is sorted.
+     * 
+     * @return Property identifying if the column store mode is enabled
+     */
+    public BooleanProperty columnStoreEnabledProperty()
+    {
+        return columnStoreEnabled;
+    }
+    
+    public void setColumnStoreEnabled(boolean enabled)
+    {
+        columnStoreEnabled.set(enabled);
+    }
+    
+    public boolean isColumnStoreEnabled()
+    {
+        return columnStoreEnabled.get();
+    }
+    
+    /**
+     * When enabled, large source lists are split into chunks that are filtered in parallel
+     * on the common {@link ForkJoinPool}, and merged back in order.  The FX thread waits
+     * for the chunks, so the rows can't change while they're filtered.
+     * The filter value extractors must be safe to call from other threads.
+     * 
+     * @return Property identifying if the parallel filtering is enabled
+     */
+    public BooleanProperty parallelFilteringEnabledProperty()
+    {
+        return parallelFilteringEnabled;
+    }
+    
+    public void setParallelFilteringEnabled(boolean enabled)
+    {
+        parallelFilteringEnabled.set(enabled);
+    }
+    
+    public boolean isParallelFilteringEnabled()
+    {
+        return parallelFilteringEnabled.get();
+    }
+    
+    /**
+     * When enabled, the filters are evaluated on a background thread, so a slow filter doesn't
+     * block the FX thread, and the filtered items are updated once the evaluation is done.
+     * A filter change made while an earlier one is still being evaluated cancels the earlier one,
+     * so only the latest filters are ever displayed.
+     * <br/><br/>
+     * The background thread filters its own copy of the source items, which is kept in sync with
+     * the source list's changes.  The filter value extractors are called from the background thread,
+     * so they must be safe to call from it.
+     * 
+     * @return Property identifying if the asynchronous filtering is enabled
+     */
+    public BooleanProperty asyncFilteringEnabledProperty()
+    {
+        return asyncFilteringEnabled;
+    }
+    
+    public void setAsyncFilteringEnabled(boolean enabled)
+    {
+        asyncFilteringEnabled.set(enabled);
+    }
+    
+    public boolean isAsyncFilteringEnabled()
+    {
+        return asyncFilteringEnabled.get();
+    }
+    
+    /**
+     * The results of the most recently used combinations of column filters are cached, 
+     * so switching back to an earlier combination, such as by checking and unchecking the 
+     * same value of an enum column, doesn't filter the source items again.
+     * The cache is cleared whenever the source items change.  Each result takes a bit per source item.
+     * 
+     * @return Property holding the number of results to cache, or 0 to not cache any
+     */
+    public IntegerProperty resultCacheSizeProperty()
+    {
+        return resultCacheSize;
+    }
+    
+    public void setResultCacheSize(int size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException("Invalid result cache size: " + size);
+        }
+        resultCacheSize.set(size);
+    }
+    
+    public int getResultCacheSize()
+    {
+        return resultCacheSize.get();
+    }
+    
+    /**
+     * Re-apply the current column filters to the source items.
+     * Call this if the values of the source rows have changed, and the source list doesn't report updates.
+     */
+    public void refilter()
+    {
+        final FilterSession session = filterSession;
+        session.execute(new Runnable() 
+        {
+            @Override
+            public void run() 
+            {
+                session.engine.invalidate();
+            }
+        });
+        applyFilters();
+    }
+    
+    /**
+     * Start a batch of filter changes.  Until the batch is committed with {@link #commitFilterChanges()},
+     * changing a column's filter doesn't filter the data, or fire a {@link ColumnFilterEvent} from this table.
+     * Batches can be nested; the changes are applied when the outermost batch is committed.
+     */
+    public void beginFilterChanges()
+    {
+        batchDepth++;
+    }
+    
+    /**
+     * Commit a batch of filter changes started by {@link #beginFilterChanges()}.
+     * When the outermost batch is committed the data is filtered once, and a single {@link ColumnFilterEvent}
+     * is fired for all the columns whose filters changed.
+     * 
+     * @throws IllegalStateException If no batch was started
+     */
+    public void commitFilterChanges()
+    {
+        if (batchDepth == 0)
+        {
+            throw new IllegalStateException("No batch of filter changes was started");
+        }
+        if (--batchDepth > 0)
+        {
+            return;
+        }
+        
+        if (batchedRefilter)
+        {
+            batchedRefilter = false;
+            applyFilters();
+        }
+        
+        if (batchedColumns.isEmpty() == false)
+        {
+            final List<AbstractFilterableTableColumn<?,?,?,?>> changed = new ArrayList<>(batchedColumns);
+            batchedColumns.clear();
+            fireEvent(newTableEvent(changed.get(changed.size() - 1), changed));
+        }
+    }
+    
+    /**
+     * Make several filter changes, which filter the data and fire a {@link ColumnFilterEvent} only once.
+     * 
+     * @param changes Makes the filter changes
+     * @see #beginFilterChanges()
+     */
+    public void batchFilterChanges(Runnable changes)
+    {
+        beginFilterChanges();
+        try
+        {
+            changes.run();
+        }
+        finally
+        {
+            commitFilterChanges();
+        }
+    }
+    
+    /**
+     * @return Event fired by this table for filter changes, which ended with a change of the last column
+     */
+    @SuppressWarnings("unchecked")
+    private <T,R extends IFilterOperator<?>,M extends IFilterEditor<R>> ColumnFilterEvent<S,T,R,M> newTableEvent(
+            AbstractFilterableTableColumn<?,T,R,M> last, List<AbstractFilterableTableColumn<?,?,?,?>> changed)
+    {
+        return new ColumnFilterEvent<S,T,R,M>(this, (AbstractFilterableTableColumn<S,T,R,M>)last
+                , last.getFilterModel().getFilters(), changed, filterSnapshot);
+    }
+    
+    /**
+     * @return The filters of all the table's filterable columns as of the latest change.  
+     *         The snapshot is immutable, and can be read from any thread.
+     */
+    public FilterSnapshot getFilterSnapshot()
+    {
+        return filterSnapshot;
+    }
+    
+    /**
+     * Replace the filter snapshot with a new version, if the columns or their filters changed
+     */
+    private void updateFilterSnapshot()
+    {
+        final Map<Object, FilterState<?>> states = new LinkedHashMap<>();
+        for (final TableColumn<S,?> col : getColumns())
+        {
+            if (col instanceof AbstractFilterableTableColumn)
+            {
+                states.put(col, ((AbstractFilterableTableColumn<?,?,?,?>)col).getFilterModel().getState());
+            }
+        }
+        
+        final FilterSnapshot previous = filterSnapshot;
+        if (previous.getStates().equals(states) == false)
+        {
+            filterSnapshot = new FilterSnapshot(previous.getVersion() + 1, states);
+        }
+    }
+    
+    /**
+     * Start a new filter engine for the current source items and threading, with all the column filters
+     */
+    private void resetFilterSession()
+    {
+        filterSession = new FilterSession(getSourceItems(), isAsyncFilteringEnabled());
+        
+        for (final TableColumn<S,?> col : getColumns())
+        {
+            if (col instanceof AbstractFilterableTableColumn)
+            {
+                updateEngineFilter((AbstractFilterableTableColumn<?,?,?,?>)col);
+                updateTextIndex((AbstractFilterableTableColumn<?,?,?,?>)col);
+            }
+        }
+        
+        if (getSourceItems() != null)
+        {
+            applyFilters();
+        }
+        else
+        {
+            // Drop any result still being evaluated
+            latestGeneration.incrementAndGet();
+            filteredItems.clear();
+        }
+    }
+    
+    /**
+     * Update the filtered projection of the source items.
+     * Any evaluation of older filters that hasn't been displayed yet is cancelled.
+     */
+    private void applyFilters()
+    {
+        if (getSourceItems() == null)
+        {
+            return;
+        }
+        if (batchDepth > 0)
+        {
+            batchedRefilter = true;
+            return;
+        }
+        
+        final FilterSession session = filterSession;
+        final int generation = latestGeneration.incrementAndGet();
+        session.execute(new Runnable() 
+        {
+            @Override
+            public void run() 
+            {
+                session.evaluate(generation);
+            }
+        });
+    }
+    
+    /**
+     * Compile the column's current filters into the filter engine
+     */
+    @SuppressWarnings("unchecked")
+    private void updateEngineFilter(final AbstractFilterableTableColumn<?,?,?,?> col)
+    {
+        // An immutable snapshot, so the engine's thread can compile it while the column changes
+        final FilterState<?> state = col.getFilterModel().getState();
+        if (state.isFiltered() == false)
+        {
+            removeEngineFilter(col, false);
+            return;
+        }
+        
+        final FilterSession session = filterSession;
+        final ValueExtractor<? super S> extractor = (ValueExtractor<? super S>)col.getFilterValueExtractor();
+        session.execute(new Runnable() 
+        {
+            @Override
+            public void run() 
+            {
+                session.engine.setColumnFilter(col, extractor, state);
+            }
+        });
+    }
+    
+    /**
+     * Stop filtering by the column
+     * 
+     * @param dropTextIndex If the column's text index should also be dropped
+     */
+    private void removeEngineFilter(final AbstractFilterableTableColumn<?,?,?,?> col, final boolean dropTextIndex)
+    {
+        final FilterSession session = filterSession;
+        session.execute(new Runnable() 
+        {
+            @Override
+            public void run() 
+            {
+                session.engine.removeColumnFilter(col);
+                if (dropTextIndex)
+                {
+                    session.engine.removeTextIndex(col);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Start building, or drop, the column's text index
+     */
+    @SuppressWarnings("unchecked")
+    private void updateTextIndex(final AbstractFilterableTableColumn<?,?,?,?> col)
+    {
+        final FilterSession session = filterSession;
+        final boolean enabled = col instanceof FilterableStringTableColumn 
+                && ((FilterableStringTableColumn<?,?>)col).isTextIndexEnabled()
+                && getSourceItems() != null;
+        final ValueExtractor<? super S> extractor = (ValueExtractor<? super S>)col.getFilterValueExtractor();
+        session.execute(new Runnable() 
+        {
+            @Override
+            public void run() 
+            {
+                if (enabled)
+                {
+                    session.engine.indexText(col, extractor, backgroundExecutor);
+                }
+                else
+                {
+                    session.engine.removeTextIndex(col);
+                }
+            }
+        });
+    }
+    
+    /**
+     * @return Executor with a single daemon thread, which stops when idle
+     */
+    private static ThreadPoolExecutor newDaemonExecutor(final String threadName)
+    {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() 
+        {
+            @Override
+            public Thread newThread(Runnable r) 
+            {
+                final Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    /**
+     * A filter engine and the rows it filters.
+     * <br/><br/>
+     * The engine is only used by a single thread: the FX thread, or the filter thread when filtering
+     * asynchronously.  Everything that touches the engine is passed to {@link #execute(Runnable)},
+     * and everything the engine's thread produces for the table is passed to {@link #publish(Runnable)}.
+     */
+    private final class FilterSession
+    {
+        final FilterEngine<S> engine = new FilterEngine<>();
+        
+        /** The source items, or the engine thread's copy of them when filtering asynchronously */
+        final List<S> rows;
+        
+        final boolean async;
+        
+        /** The request the engine's matches were last evaluated for; only used by the engine's thread */
+        private int evaluatedGeneration;
+        
+        FilterSession(ObservableList<S> source, boolean async)
+        {
+            this.async = async;
+            this.rows = source == null ? new ArrayList<S>() : async ? new ArrayList<S>(source) : source;
+            engine.setSource(rows);
+            engine.setColumnStoreEnabled(isColumnStoreEnabled());
+            engine.setParallelPool(isParallelFilteringEnabled() ? ForkJoinPool.commonPool() : null);
+            engine.setResultCacheSize(Math.max(getResultCacheSize(), 0));
+        }
+        
+        /**
+         * Run a task on the engine's thread
+         */
+        void execute(Runnable task)
+        {
+            if (async)
+            {
+                filterExecutor.execute(task);
+            }
+            else
+            {
+                task.run();
+            }
+        }
+        
+        /**
+         * Run a task on the FX thread
+         */
+        void publish(Runnable task)
+        {
+            if (async)
+            {
+                Platform.runLater(task);
+            }
+            else
+            {
+                task.run();
+            }
+        }
+        
+        /**
+         * Evaluate the filters, and display the result if no other filter request was made meanwhile
+         */
+        void evaluate(final int generation)
+        {
+            final BooleanSupplier stale = new BooleanSupplier() 
+            {
+                @Override
+                public boolean getAsBoolean() 
+                {
+                    return latestGeneration.get() != generation;
+                }
+            };
+            if (stale.getAsBoolean())
+            {
+                return;
+            }
+            
+            final long start = System.nanoTime();
+            final BitSet matches = engine.evaluate(stale);
+            if (matches == null)
+            {
+                return;
+            }
+            evaluatedGeneration = generation;
+            
+            final List<S> items = new ArrayList<>(matches.cardinality());
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1))
+            {
+                items.add(rows.get(i));
+            }
+            final int total = rows.size();
+            
+            publish(new Runnable() 
+            {
+                @Override
+                public void run() 
+                {
+                    if (stale.getAsBoolean())
+                    {
+                        return;
+                    }
+                    filteredItems.setAll(items);
+                    displayedGeneration = generation;
+                    
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug(String.format("Filtered %d rows down to %d in %d ms"
+                                , total, items.size(), (System.nanoTime() - start) / 1000000));
+                    }
+                }
+            });
+        }
+        
+        /**
+         * Apply changes of the source items to the engine, and to the filtered items
+         */
+        void sourceChanged(List<ListEdit<S>> changes)
+        {
+            final int generation = evaluatedGeneration;
+            final List<ListEdit<S>> edits = new ArrayList<>();
+            boolean refilter = false;
+            for (ListEdit<S> change : changes)
+            {
+                if (change.permuted)
+                {
+                    if (async)
+                    {
+                        rows.clear();
+                        rows.addAll(change.added);
+                    }
+                    engine.invalidate();
+                    refilter = true;
+                }
+                else if (change.updatedTo >= 0)
+                {
+                    refilter |= rowsUpdated(change.from, change.updatedTo, edits);
+                }
+                else
+                {
+                    // A replacement is a removal followed by an insertion
+                    if (change.removed > 0)
+                    {
+                        refilter |= rowsRemoved(change.from, change.removed, edits);
+                    }
+                    if (change.added.isEmpty() == false)
+                    {
+                        refilter |= rowsInserted(change.from, change.added, edits);
+                    }
+                }
+            }
+            
+            if (refilter)
+            {
+                publish(new Runnable() 
+                {
+                    @Override
+                    public void run() 
+                    {
+                        applyFilters();
+                    }
+                });
+            }
+            else if (edits.isEmpty() == false)
+            {
+                publish(new Runnable() 
+                {
+                    @Override
+                    public void run() 
+                    {
+                        // Edits of a result that wasn't displayed are dropped; the newer result will include the changes
+                        if (displayedGeneration != generation)
+                        {
+                            return;
+                        }
+                        for (ListEdit<S> edit : edits)
+                        {
+                            if (edit.removed > 0)
+                            {
+                                filteredItems.remove(edit.from, edit.from + edit.removed);
+                            }
+                            if (edit.added.isEmpty() == false)
+                            {
+                                filteredItems.addAll(edit.from, edit.added);
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        
+        /**
+         * Remove rows from the filtered items.
+         * @return If the filtered items couldn't be updated, and the rows must be filtered again
+         */
+        private boolean rowsRemoved(int from, int count, List<ListEdit<S>> edits)
+        {
+            if (async)
+            {
+                rows.subList(from, from + count).clear();
+            }
+            if (engine.hasMatches() == false)
+            {
+                engine.rowsRemoved(from, count);
+                return true;
+            }
+            
+            final int pos = engine.countMatches(0, from);
+            final int matched = engine.countMatches(from, from + count);
+            engine.rowsRemoved(from, count);
+            if (matched > 0)
+            {
+                edits.add(ListEdit.replaced(pos, matched, Collections.<S>emptyList()));
+            }
+            return false;
+        }
+        
+        /**
+         * Add rows that match the filters to the filtered items.
+         * @return If the filtered items couldn't be updated, and the rows must be filtered again
+         */
+        private boolean rowsInserted(int from, List<S> added, List<ListEdit<S>> edits)
+        {
+            if (async)
+            {
+                rows.addAll(from, added);
+            }
+            engine.rowsInserted(from, added.size());
+            if (engine.hasMatches() == false)
+            {
+                return true;
+            }
+            
+            final List<S> matched = new ArrayList<>();
+            for (int i=0; i < added.size(); i++)
+            {
+                if (engine.isMatch(from + i))
+                {
+                    matched.add(added.get(i));
+                }
+            }
+            if (matched.isEmpty() == false)
+            {
+                edits.add(ListEdit.replaced(engine.countMatches(0, from), 0, matched));
+            }
+            return false;
+        }
+        
+        /**
+         * Add or remove updated rows from the filtered items, as they now match the filters or not.
+         * @return If the filtered items couldn't be updated, and the rows must be filtered again
+         */
+        private boolean rowsUpdated(int from, int to, List<ListEdit<S>> edits)
+        {
+            if (engine.hasMatches() == false)
+            {
+                engine.rowsUpdated(from, to - from);
+                return true;
+            }
+            
+            final boolean[] matched = new boolean[to - from];
+            for (int i=from; i < to; i++)
+            {
+                matched[i - from] = engine.isMatch(i);
+            }
+            engine.rowsUpdated(from, to - from);
+            if (engine.hasMatches() == false)
+            {
+                return true;
+            }
+            
+            for (int i=from; i < to; i++)
+            {
+                final boolean match = engine.isMatch(i);
+                if (match != matched[i - from])
+                {
+                    final int pos = engine.countMatches(0, i);
+                    if (match)
+                    {
+                        edits.add(ListEdit.replaced(pos, 0, Collections.singletonList(rows.get(i))));
+                    }
+                    else
+                    {
+                        edits.add(ListEdit.replaced(pos, 1, Collections.<S>emptyList()));
+                    }
+                }
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * A change of a list, copied so it can be applied to another list later, or on another thread
+     */
+    private static final class ListEdit<S>
+    {
+        final int from;
+        /** Number of rows removed at the index */
+        final int removed;
+        /** Rows inserted at the index after the removal; or all the rows, after a permutation */
+        final List<S> added;
+        /** End of the updated rows, or -1 if this isn't an update */
+        final int updatedTo;
+        final boolean permuted;
+        
+        private ListEdit(int from, int removed, List<S> added, int updatedTo, boolean permuted)
+        {
+            this.from = from;
+            this.removed = removed;
+            this.added = added;
+            this.updatedTo = updatedTo;
+            this.permuted = permuted;
+        }
+        
+        static <S> ListEdit<S> replaced(int from, int removed, List<S> added)
+        {
+            return new ListEdit<S>(from, removed, added, -1, false);
+        }
+        
+        static <S> ListEdit<S> updated(int from, int to)
+        {
+            return new ListEdit<S>(from, 0, Collections.<S>emptyList(), to, false);
+        }
+        
+        /**
+         * @param rows The list's rows after the permutation, or null if they're not needed
+         */
+        static <S> ListEdit<S> permuted(List<S> rows)
+        {
+            return new ListEdit<S>(0, 0, rows, -1, true);
+        }
+    }
+}
@@ -25,6 +25,8 @@
  */
 package org.google.jhsheets.filtered.tablecolumn;
 
+import javafx.util.Callback;
+
 import org.google.jhsheets.filtered.operators.NumberOperator;
 import org.google.jhsheets.filtered.tablecolumn.editor.NumberFilterEditor;
 
@@ -43,8 +45,15 @@ extends AbstractFilterableTableColumn<S, T, NumberOperator<T>, NumberFilterEdito
         this("", klass);
     }
     
-    public AbstractFilterableNumberTableColumn(String text, Class<T> klass)
+    public AbstractFilterableNumberTableColumn(String text, final Class<T> klass)
     {
-        super(text, new NumberFilterEditor<>(text, klass));
+        super(text, new Callback<AbstractFilterableTableColumn<S, T, NumberOperator<T>, NumberFilterEditor<T>>, NumberFilterEditor<T>>() 
+        {
+            @Override
+            public NumberFilterEditor<T> call(AbstractFilterableTableColumn<S, T, NumberOperator<T>, NumberFilterEditor<T>> column) 
+            {
+                return new NumberFilterEditor<>(column.getText(), klass);
+            }
+        });
     }
 }
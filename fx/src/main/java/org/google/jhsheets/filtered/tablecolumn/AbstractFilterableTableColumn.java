@@ -0,0 +1,499 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.tablecolumn;
+
+import java.util.List;
+import java.util.function.Function;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.event.ActionEvent;
+import javafx.event.Event;
+import javafx.event.EventHandler;
+import javafx.scene.control.TableColumn;
+import javafx.stage.WindowEvent;
+import javafx.util.Callback;
+
+import org.google.jhsheets.filtered.engine.ValueExtractor;
+import org.google.jhsheets.filtered.model.ColumnFilterModel;
+import org.google.jhsheets.filtered.model.FilterState;
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.tablecolumn.editor.FilterMenuButton;
+import org.google.jhsheets.filtered.tablecolumn.editor.FilterMenuPopup;
+import org.google.jhsheets.filtered.tablecolumn.editor.IFilterEditor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Note: we hijack the ContextMenu to display the filter selection dialog. 
+ * Do not set the ContextMenu anywhere else.
+ * <br/><br/>
+ * Sub-classes can pass a factory for their filter editor instead of the editor, which isn't called
+ * until the filter menu is first shown or filters are set, so columns that are never filtered
+ * don't build any of the editor's controls.  The column's filters can be read without it.
+ * <br/><br/>
+ * The filter menu itself is shared by all the columns of the table, and displays the
+ * editor of the column whose button was clicked.
+ * <br/><br/>
+ * The column's {@link ColumnFilterModel} holds its filters.  Changing the model's state directly
+ * enters the filters in the editor, as {@link #setFilters(List)} does, so it must be done on the
+ * JavaFX application thread.
+ * 
+ * @author JHS
+ */
+public class AbstractFilterableTableColumn<S,T,R extends IFilterOperator<?>,M extends IFilterEditor<R>> 
+extends TableColumn<S,T>
+implements IFilterableTableColumn<R, M>
+{
+    private static final Logger logger = LoggerFactory.getLogger(AbstractFilterableTableColumn.class);
+    
+    private M filterEditor;
+    /** Creates the filter editor when it's first needed; null once it's created */
+    private Callback<AbstractFilterableTableColumn<S,T,R,M>, M> filterEditorFactory;
+    private final BooleanProperty filtered = new SimpleBooleanProperty(this, "filtered", false);
+    private final ColumnFilterModel<R> filterModel = new ColumnFilterModel<>();
+    /** Set while the editor saves its filters to the model, which it can do in several steps */
+    private boolean editingFilters = false;
+    private final ObservableList<R> filterResults;
+    private final ValueExtractor<S> cellValueExtractor;
+    private ValueExtractor<S> filterValueExtractor;
+    
+    
+    /**
+     * @param name The column title
+     * @param filterEditor The editor used to change the column's filters
+     */
+    public AbstractFilterableTableColumn(String name, final M filterEditor)
+    {
+        this(name, filterEditor, null);
+        
+        if (filterEditor == null) {
+            throw new NullPointerException("Filter editor can not be null");
+        }
+    }
+    
+    /**
+     * Used by sub-classes that create their editor when it's first needed
+     * @param name The column title
+     * @param filterEditorFactory Called with this column, once, to create the editor used to change the column's filters
+     */
+    protected AbstractFilterableTableColumn(String name, Callback<AbstractFilterableTableColumn<S,T,R,M>, M> filterEditorFactory)
+    {
+        this(name, null, filterEditorFactory);
+        
+        if (filterEditorFactory == null) {
+            throw new NullPointerException("Filter editor factory can not be null");
+        }
+    }
+    
+    private AbstractFilterableTableColumn(String name, M filterEditor, Callback<AbstractFilterableTableColumn<S,T,R,M>, M> filterEditorFactory)
+    {
+        super(name);
+        
+        filterModel.addListener(new ColumnFilterModel.Listener<R>() 
+        {
+            @Override
+            public void stateChanged(ColumnFilterModel<R> model, FilterState<R> oldState, FilterState<R> newState) 
+            {
+                // The column updates itself once the editor is done with the model
+                if (editingFilters == false)
+                {
+                    filterModelChanged(oldState, newState);
+                }
+            }
+        });
+        
+        this.filterEditorFactory = filterEditorFactory;
+        if (filterEditor != null)
+        {
+            setFilterEditor(filterEditor);
+        }
+        
+        this.filterResults = FXCollections.observableArrayList();
+        this.cellValueExtractor = ValueExtractor.of(new Function<S, T>() 
+        {
+            @Override
+            public T apply(S row) 
+            {
+                final ObservableValue<T> value = getCellObservableValue(row);
+                return value == null ? null : value.getValue();
+            }
+        });
+        
+        // The menu isn't created until the button is first clicked
+        final FilterMenuButton filterMnuButton = new FilterMenuButton(new Callback<FilterMenuButton, FilterMenuPopup>() 
+        {
+            @Override
+            public FilterMenuPopup call(FilterMenuButton button) 
+            {
+                return getFilterMenu();
+            }
+        });
+        filterMnuButton.activeProperty().bind(filtered);
+        // Display a button on the column to show the menu
+        setGraphic(filterMnuButton);
+        
+        // I'd love to do this, but you have to set the content to GRAPHIC_ONLY, but there's
+        // no way to do that as the header skin is part of the table, not the column
+        //final Label lbl = new Label();
+        //lbl.textProperty().bind(this.textProperty());
+        //final BorderPane pane = new BorderPane();
+        //pane.setLeft(filterTrigger);
+        //pane.setCenter(lbl);
+        //setGraphic(pane);
+    }
+    
+    /**
+     * @return The editor used to change this column's filters, which is created if it hasn't been yet
+     */
+    protected M getFilterEditor() 
+    {
+        if (filterEditor == null)
+        {
+            setFilterEditor(filterEditorFactory.call(this));
+            filterEditorFactory = null;
+        }
+        return filterEditor;
+    }
+    
+    /**
+     * Start using the editor, which saves its filters to this column's model
+     */
+    private void setFilterEditor(M filterEditor)
+    {
+        this.filterEditor = filterEditor;
+        editingFilters = true;
+        try
+        {
+            filterEditor.setFilterModel(filterModel);
+        }
+        finally
+        {
+            editingFilters = false;
+        }
+        filtered.set(filterModel.isFiltered());
+    }
+    
+    /**
+     * @return If the filter editor was created.  Sub-classes use this to avoid creating it just to configure it.
+     */
+    protected boolean isFilterEditorCreated()
+    {
+        return filterEditor != null;
+    }
+    
+    /**
+     * @return The table's filter menu, displaying this column's editor, and set up to save or reset this column's filters
+     */
+    private FilterMenuPopup getFilterMenu()
+    {
+        final M filterEditor = getFilterEditor();
+        final FilterMenuPopup menu = FilterMenuPopup.getSharedMenu(getTableView());
+        if (menu.getContentNode() == filterEditor.getFilterMenuContent())
+        {
+            return menu;
+        }
+        
+        // The menu is displaying another column's editor; hiding it cancels that editor's changes
+        menu.hide();
+        
+        // Keep the popup menu's title sync'd with the column title
+        menu.titleProperty().bind(AbstractFilterableTableColumn.this.textProperty());
+        menu.setContentNode(filterEditor.getFilterMenuContent());
+        
+        menu.setOnHidden(new EventHandler<WindowEvent>() 
+        {
+            @Override
+            public void handle(WindowEvent t) 
+            {
+                filterEditor.cancel();
+            }
+        });
+        
+        menu.setResetEvent(new EventHandler<ActionEvent>() 
+        {
+            @Override
+            public void handle(ActionEvent t) 
+            {
+                try 
+                {
+                    editingFilters = true;
+                    if (filterEditor.clear())
+                    {
+                        filtersChanged();
+                    }
+                    menu.hide();
+                } 
+                catch (Exception ex) 
+                {
+                    logger.error(String.format("Error clearing filter on column: %s"
+                            , AbstractFilterableTableColumn.this.getText()), ex);
+                }
+                finally
+                {
+                    editingFilters = false;
+                }
+            }
+        });
+        
+        menu.setSaveEvent(new EventHandler<ActionEvent>() 
+        {
+            @Override
+            public void handle(ActionEvent t) 
+            {
+                try
+                {
+                    editingFilters = true;
+                    if (filterEditor.save())
+                    {
+                        filtersChanged();
+                    }
+                    menu.hide();
+                }
+                catch (Exception ex)
+                {
+                    logger.error(String.format("Error saving filter on column: %s"
+                            , AbstractFilterableTableColumn.this.getText()), ex);
+                }
+                finally
+                {
+                    editingFilters = false;
+                }
+            }
+        });
+        
+        return menu;
+    }
+    
+    /**
+     * The model's state was set directly, rather than by the editor.  Enter its filters in the editor, 
+     * which saves them back to the model the way it would have saved them itself, and notify the table.
+     * 
+     * @throws IllegalArgumentException If the filters can't be entered in the editor, which restores its own filters
+     */
+    private void filterModelChanged(FilterState<R> oldState, FilterState<R> newState)
+    {
+        final M filterEditor = getFilterEditor();
+        try
+        {
+            editingFilters = true;
+            if (newState.isFiltered())
+            {
+                filterEditor.setFilters(newState.getFilters());
+            }
+            else
+            {
+                filterEditor.clear();
+            }
+        }
+        catch (Exception ex)
+        {
+            // The editor kept its filters, so put them back in the model
+            filterEditor.setFilterModel(filterModel);
+            if (ex instanceof RuntimeException)
+            {
+                throw (RuntimeException)ex;
+            }
+            throw new IllegalArgumentException(String.format("Invalid filters for column: %s", getText()), ex);
+        }
+        finally
+        {
+            editingFilters = false;
+        }
+        
+        if (filterModel.getState().equals(oldState) == false)
+        {
+            filtersChanged();
+        }
+    }
+    
+    /**
+     * Update the filter list and {@link #filteredProperty()} with the model's filters, and notify the table
+     */
+    private void filtersChanged()
+    {
+        filtered.set(filterModel.isFiltered());
+        filterResults.setAll(filterModel.getFilters());
+        
+        // A column that isn't in a table yet is picked up by the table when it's added
+        if (getTableView() != null)
+        {
+            final ColumnFilterEvent<S,T,R,M> e = new ColumnFilterEvent<>(
+                    AbstractFilterableTableColumn.this.getTableView()
+                    , AbstractFilterableTableColumn.this
+                    , filterModel.getFilters());
+            
+            Event.fireEvent(AbstractFilterableTableColumn.this, e);
+        }
+    }
+    
+    /**
+     * Set the function used to fetch this column's value from a row when the
+     * filters are applied by a {@link org.google.jhsheets.filtered.FilteredTableView}.
+     * <br/><br/>
+     * If no extractor is set, the column's cell value factory is used instead, 
+     * which can be considerably slower (ie: {@link javafx.scene.control.cell.PropertyValueFactory} uses reflection).
+     * 
+     * @param extractor Function returning the value this column displays for a row, or null to use the cell value factory
+     */
+    public void setFilterValueExtractor(Function<? super S, ? extends T> extractor)
+    {
+        setValueExtractor(extractor == null ? null : ValueExtractor.<S>of(extractor));
+    }
+    
+    /**
+     * Used by sub-classes to supply primitive extractors
+     * @param extractor Extractor to use, or null to use the cell value factory
+     */
+    protected final void setValueExtractor(ValueExtractor<S> extractor)
+    {
+        this.filterValueExtractor = extractor;
+    }
+    
+    /**
+     * @return Extractor used to fetch this column's value from a row when filtering. Never null.
+     * @see #setFilterValueExtractor(Function)
+     */
+    public ValueExtractor<S> getFilterValueExtractor()
+    {
+        return filterValueExtractor != null ? filterValueExtractor : cellValueExtractor;
+    }
+    
+    @Override
+    public ObservableList<R> getFilters() 
+    { 
+        return filterResults;
+    }
+    
+    /**
+     * The editor saves its filters to the model, which exists before the editor is created.
+     * The model's filters are the editor's saved filters, which can include NONE filters, 
+     * so use {@link ColumnFilterModel#isFiltered()} to determine if the column is filtered.
+     * <br/><br/>
+     * Setting the model's state is the same as calling {@link #setFilters(List)}, or {@link #clearFilters()}
+     * if the state isn't filtered, except the editor may replace the filters with equivalent ones.
+     */
+    @Override
+    public ColumnFilterModel<R> getFilterModel()
+    {
+        return filterModel;
+    }
+    
+    @Override
+    public final BooleanProperty filteredProperty()
+    {
+        return filtered;
+    }
+    
+    @Override
+    public boolean isFiltered()
+    {
+        return filtered.get();
+    }
+    
+    /**
+     * Set this column's filters, as if they were entered in the filter menu and saved,
+     * without showing the menu.  The filter editor, {@link #filteredProperty()} and {@link #getFilters()}
+     * are updated, and a {@link ColumnFilterEvent} is fired if the filters changed.
+     * <br/><br/>
+     * NONE filters are ignored, so an empty list clears the filter.
+     * 
+     * @param filters The filters to apply
+     * @throws IllegalArgumentException If the filters can't be entered in this column's filter editor
+     */
+    public void setFilters(List<? extends R> filters)
+    {
+        final M filterEditor = getFilterEditor();
+        try
+        {
+            editingFilters = true;
+            if (filterEditor.setFilters(filters))
+            {
+                filtersChanged();
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            throw ex;
+        }
+        catch (Exception ex)
+        {
+            throw new IllegalArgumentException(String.format("Invalid filters for column: %s", getText()), ex);
+        }
+        finally
+        {
+            editingFilters = false;
+        }
+    }
+    
+    /**
+     * Clear this column's filters, as if they were reset in the filter menu.
+     * A {@link ColumnFilterEvent} is fired if the column was filtered.
+     */
+    public void clearFilters()
+    {
+        // Don't create the editor just to clear it when there's nothing to clear
+        if (isFilterEditorCreated() == false && filterModel.isFiltered() == false)
+        {
+            return;
+        }
+        final M filterEditor = getFilterEditor();
+        try
+        {
+            editingFilters = true;
+            if (filterEditor.clear())
+            {
+                filtersChanged();
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            throw ex;
+        }
+        catch (Exception ex)
+        {
+            throw new IllegalStateException(String.format("Error clearing filter on column: %s", getText()), ex);
+        }
+        finally
+        {
+            editingFilters = false;
+        }
+    }
+    
+    //public boolean isFilterable() {
+    //    // TODO
+    //}
+    //public void setFilterable(boolean filterable) {
+    //    // TODO
+    //}
+    //public SimpleBooleanProperty filterableProperty() {
+    //    // TODO
+    //}
+    
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.tablecolumn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javafx.event.Event;
+import javafx.event.EventType;
+import javafx.scene.control.TableView;
+import org.google.jhsheets.filtered.model.FilterSnapshot;
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.tablecolumn.editor.IFilterEditor;
+
+/**
+ * An event that is fired when an {@link AbstractFilterableTableColumn} has its filter changed.
+ * <br/><br/>
+ * When the filters of several columns are changed in a single batch 
+ * (see {@link org.google.jhsheets.filtered.FilteredTableView#batchFilterChanges(Runnable)}),
+ * a single event is fired for all of them.  {@link #sourceColumns()} then holds every changed column,
+ * and {@link #sourceColumn()} the last one.
+ * <br/><br/>
+ * The event's filters can't be modified, and can be read from any thread.  The events fired by a 
+ * {@link org.google.jhsheets.filtered.FilteredTableView} also carry a versioned {@link FilterSnapshot}
+ * of the filters of all the table's columns.
+ * @author JHS
+ */
+public class ColumnFilterEvent<S,T,R extends IFilterOperator<?>,M extends IFilterEditor<R>>
+extends Event
+{
+	private static final long serialVersionUID = 4680995104566602041L;
+
+	/**
+     * An event indicating that the filter has changed
+     */
+    public static final EventType<ColumnFilterEvent<?,?,?,?>> FILTER_CHANGED_EVENT = new EventType<>(Event.ANY, "FILTER_CHANGED");
+    
+    private List<R> filter;
+    
+    private AbstractFilterableTableColumn<S,T,R,M> sourceColumn;
+    
+    private List<AbstractFilterableTableColumn<?,?,?,?>> sourceColumns;
+    
+    private FilterSnapshot snapshot;
+    
+    
+    public ColumnFilterEvent(TableView<S> table, AbstractFilterableTableColumn<S,T,R,M> sourceColumn, List<R> filter) 
+    {
+        this(table, sourceColumn, filter, Collections.<AbstractFilterableTableColumn<?,?,?,?>>singletonList(sourceColumn));
+    }
+    
+    /**
+     * @param sourceColumn The last column that had its filter changed
+     * @param filter The filters of the last column
+     * @param sourceColumns All the columns that had their filters changed
+     */
+    public ColumnFilterEvent(TableView<S> table, AbstractFilterableTableColumn<S,T,R,M> sourceColumn, List<R> filter
+            , List<AbstractFilterableTableColumn<?,?,?,?>> sourceColumns) 
+    {
+        this(table, sourceColumn, filter, sourceColumns, null);
+    }
+    
+    /**
+     * @param sourceColumn The last column that had its filter changed
+     * @param filter The filters of the last column
+     * @param sourceColumns All the columns that had their filters changed
+     * @param snapshot The filters of all the table's columns after the change
+     */
+    public ColumnFilterEvent(TableView<S> table, AbstractFilterableTableColumn<S,T,R,M> sourceColumn, List<R> filter
+            , List<AbstractFilterableTableColumn<?,?,?,?>> sourceColumns, FilterSnapshot snapshot) 
+    {
+        super(table, Event.NULL_SOURCE_TARGET, ColumnFilterEvent.FILTER_CHANGED_EVENT);
+
+        if (table == null) {
+            throw new NullPointerException("TableView can not be null");
+        }
+
+        this.filter = Collections.unmodifiableList(new ArrayList<R>(filter));
+        this.sourceColumn = sourceColumn;
+        this.sourceColumns = Collections.unmodifiableList(new ArrayList<AbstractFilterableTableColumn<?,?,?,?>>(sourceColumns));
+        this.snapshot = snapshot;
+    }
+    
+    /**
+     * @return Any and all filters applied to the column.  The list can't be modified.
+     */
+    public List<R> getFilters()
+    {
+        return filter;
+    }
+    
+    /**
+     * @return The {@link AbstractFilterableTableColumn} which had its filter changed
+     */
+    public AbstractFilterableTableColumn<S,T,R,M> sourceColumn()
+    {
+        return sourceColumn;
+    }
+    
+    /**
+     * @return Every {@link AbstractFilterableTableColumn} which had its filter changed; 
+     *         more than one when the changes were made in a batch
+     */
+    public List<AbstractFilterableTableColumn<?,?,?,?>> sourceColumns()
+    {
+        return sourceColumns;
+    }
+    
+    /**
+     * @return The filters of all the table's columns after the change, or null if the event 
+     *         wasn't fired by a {@link org.google.jhsheets.filtered.FilteredTableView}
+     */
+    public FilterSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+}
@@ -25,6 +25,8 @@
  */
 package org.google.jhsheets.filtered.tablecolumn;
 
+import javafx.util.Callback;
+
 import org.google.jhsheets.filtered.operators.BooleanOperator;
 import org.google.jhsheets.filtered.tablecolumn.editor.BooleanFilterEditor;
 
@@ -42,6 +44,13 @@ extends AbstractFilterableTableColumn<S, T, BooleanOperator, BooleanFilterEditor
     
     public FilterableBooleanTableColumn(String text)
     {
-        super(text, new BooleanFilterEditor(text));
+        super(text, new Callback<AbstractFilterableTableColumn<S, T, BooleanOperator, BooleanFilterEditor>, BooleanFilterEditor>() 
+        {
+            @Override
+            public BooleanFilterEditor call(AbstractFilterableTableColumn<S, T, BooleanOperator, BooleanFilterEditor> column) 
+            {
+                return new BooleanFilterEditor(column.getText());
+            }
+        });
     }
 }
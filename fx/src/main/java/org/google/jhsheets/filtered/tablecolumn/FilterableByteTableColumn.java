@@ -25,6 +25,10 @@
  */
 package org.google.jhsheets.filtered.tablecolumn;
 
+import java.util.function.ToIntFunction;
+
+import org.google.jhsheets.filtered.engine.ValueExtractor;
+
 /**
  *
  * @author JHS
@@ -42,4 +46,15 @@ extends AbstractFilterableNumberTableColumn<S, Byte>
         super(text, Byte.class);
     }
     
+    /**
+     * Set a function that fetches this column's value from a row as a primitive {@code int}.
+     * Filtering then compares the row values without boxing them.
+     * The values are widened to ints, which is exact.
+     * 
+     * @param extractor Function returning the value this column displays for a row, or null to use the cell value factory
+     */
+    public void setIntFilterValueExtractor(ToIntFunction<? super S> extractor)
+    {
+        setValueExtractor(extractor == null ? null : ValueExtractor.<S>ofInt(extractor));
+    }
 }
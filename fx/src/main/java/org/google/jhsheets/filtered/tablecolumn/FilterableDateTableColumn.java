@@ -25,6 +25,8 @@
  */
 package org.google.jhsheets.filtered.tablecolumn;
 
+import javafx.util.Callback;
+
 import org.google.jhsheets.filtered.operators.DateOperator;
 import org.google.jhsheets.filtered.tablecolumn.editor.DateFilterEditor;
 
@@ -42,11 +44,22 @@ extends AbstractFilterableTableColumn<S, T, DateOperator, DateFilterEditor>
     
     public FilterableDateTableColumn(String text)
     {
-        super(text, new DateFilterEditor(text));
+        this(text, null);
     }
     
-    public FilterableDateTableColumn(String text, String dateFormat)
+    /**
+     * @param text The column title
+     * @param dateFormat The format of the dates entered in the filter editor, or null for its default
+     */
+    public FilterableDateTableColumn(String text, final String dateFormat)
     {
-        super(text, new DateFilterEditor(text, dateFormat));
+        super(text, new Callback<AbstractFilterableTableColumn<S, T, DateOperator, DateFilterEditor>, DateFilterEditor>() 
+        {
+            @Override
+            public DateFilterEditor call(AbstractFilterableTableColumn<S, T, DateOperator, DateFilterEditor> column) 
+            {
+                return dateFormat == null ? new DateFilterEditor(column.getText()) : new DateFilterEditor(column.getText(), dateFormat);
+            }
+        });
     }
 }
@@ -25,6 +25,10 @@
  */
 package org.google.jhsheets.filtered.tablecolumn;
 
+import java.util.function.ToDoubleFunction;
+
+import org.google.jhsheets.filtered.engine.ValueExtractor;
+
 /**
  *
  * @author JHS
@@ -42,4 +46,14 @@ extends AbstractFilterableNumberTableColumn<S, Double>
         super(text, Double.class);
     }
     
+    /**
+     * Set a function that fetches this column's value from a row as a primitive {@code double}.
+     * Filtering then compares the row values without boxing them.
+     * 
+     * @param extractor Function returning the value this column displays for a row, or null to use the cell value factory
+     */
+    public void setDoubleFilterValueExtractor(ToDoubleFunction<? super S> extractor)
+    {
+        setValueExtractor(extractor == null ? null : ValueExtractor.<S>ofDouble(extractor));
+    }
 }
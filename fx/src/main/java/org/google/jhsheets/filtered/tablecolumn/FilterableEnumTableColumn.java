@@ -25,6 +25,8 @@
  */
 package org.google.jhsheets.filtered.tablecolumn;
 
+import javafx.util.Callback;
+
 import org.google.jhsheets.filtered.operators.EnumOperator;
 import org.google.jhsheets.filtered.tablecolumn.editor.EnumFilterEditor;
 
@@ -35,6 +37,11 @@ import org.google.jhsheets.filtered.tablecolumn.editor.EnumFilterEditor;
 public class FilterableEnumTableColumn<S, T>
 extends AbstractFilterableTableColumn<S, T, EnumOperator<T>, EnumFilterEditor<T>>
 {
+    // Kept until the editor is created
+    private T[] enumValues;
+    private boolean selectedByDefault;
+    private boolean showToggle;
+    
     public FilterableEnumTableColumn()
     {
         this("", null);
@@ -62,12 +69,28 @@ extends AbstractFilterableTableColumn<S, T, EnumOperator<T>, EnumFilterEditor<T>
     
     public FilterableEnumTableColumn(String text, T[] enumValues, boolean selectedByDefault, boolean showToggle)
     {
-        super(text, new EnumFilterEditor<>(text, enumValues, selectedByDefault, showToggle));
+        super(text, new Callback<AbstractFilterableTableColumn<S, T, EnumOperator<T>, EnumFilterEditor<T>>, EnumFilterEditor<T>>() 
+        {
+            @Override
+            public EnumFilterEditor<T> call(AbstractFilterableTableColumn<S, T, EnumOperator<T>, EnumFilterEditor<T>> column) 
+            {
+                // Created with the column's settings as of when the editor is first needed
+                final FilterableEnumTableColumn<S, T> enumColumn = (FilterableEnumTableColumn<S, T>)column;
+                return new EnumFilterEditor<>(enumColumn.getText(), enumColumn.enumValues, enumColumn.selectedByDefault, enumColumn.showToggle);
+            }
+        });
+        this.enumValues = enumValues;
+        this.selectedByDefault = selectedByDefault;
+        this.showToggle = showToggle;
     }
     
     public void setEnumValues(T[] enumValues)
     {
-        getFilterEditor().populateMenuItems(enumValues);
+        this.enumValues = enumValues;
+        if (isFilterEditorCreated())
+        {
+            getFilterEditor().populateMenuItems(enumValues);
+        }
     }
     
     /**
@@ -77,9 +100,13 @@ extends AbstractFilterableTableColumn<S, T, EnumOperator<T>, EnumFilterEditor<T>
      */
     public void selectByDefault(boolean selected)
     {
-        getFilterEditor().selectedByDefault(selected);
-        // This doesn't trigger a filter change event, so it's safe to call
-        getFilterEditor().toggleAll(selected);
+        this.selectedByDefault = selected;
+        if (isFilterEditorCreated())
+        {
+            getFilterEditor().selectedByDefault(selected);
+            // This doesn't trigger a filter change event, so it's safe to call
+            getFilterEditor().toggleAll(selected);
+        }
     }
     
     /**
@@ -88,6 +115,10 @@ extends AbstractFilterableTableColumn<S, T, EnumOperator<T>, EnumFilterEditor<T>
      */
     public void showToggleAll(boolean showToggle)
     {
-        getFilterEditor().showToggleAll(showToggle);
+        this.showToggle = showToggle;
+        if (isFilterEditorCreated())
+        {
+            getFilterEditor().showToggleAll(showToggle);
+        }
     }
 }
@@ -25,6 +25,10 @@
  */
 package org.google.jhsheets.filtered.tablecolumn;
 
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.util.Callback;
+
 import org.google.jhsheets.filtered.operators.StringOperator;
 import org.google.jhsheets.filtered.tablecolumn.editor.TextFilterEditor;
 
@@ -35,6 +39,8 @@ import org.google.jhsheets.filtered.tablecolumn.editor.TextFilterEditor;
 public class FilterableStringTableColumn<S, T>
 extends AbstractFilterableTableColumn<S, T, StringOperator, TextFilterEditor>
 {
+    private final BooleanProperty textIndexEnabled = new SimpleBooleanProperty(this, "textIndexEnabled", false);
+    
     public FilterableStringTableColumn()
     {
         this("");
@@ -42,6 +48,39 @@ extends AbstractFilterableTableColumn<S, T, StringOperator, TextFilterEditor>
     
     public FilterableStringTableColumn(String text)
     {
-        super(text, new TextFilterEditor(text));
+        super(text, new Callback<AbstractFilterableTableColumn<S, T, StringOperator, TextFilterEditor>, TextFilterEditor>() 
+        {
+            @Override
+            public TextFilterEditor call(AbstractFilterableTableColumn<S, T, StringOperator, TextFilterEditor> column) 
+            {
+                return new TextFilterEditor(column.getText());
+            }
+        });
+    }
+    
+    /**
+     * When enabled, and the column is in a {@link org.google.jhsheets.filtered.FilteredTableView} 
+     * that filters its source items, the table builds an index of the trigrams in the column's 
+     * values in the background.  The index lets the CONTAINS filter skip the rows that can't match,
+     * at the cost of the memory to hold it.
+     * <br/><br/>
+     * The values are read on the background thread too, so set a filter value extractor 
+     * (see {@link #setFilterValueExtractor(java.util.function.Function)}) that's safe to call from it.
+     * 
+     * @return Property identifying if the column's values should be indexed
+     */
+    public BooleanProperty textIndexEnabledProperty()
+    {
+        return textIndexEnabled;
+    }
+    
+    public void setTextIndexEnabled(boolean enabled)
+    {
+        textIndexEnabled.set(enabled);
+    }
+    
+    public boolean isTextIndexEnabled()
+    {
+        return textIndexEnabled.get();
     }
 }
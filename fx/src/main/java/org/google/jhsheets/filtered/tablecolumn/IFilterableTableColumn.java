@@ -25,8 +25,12 @@
  */
 package org.google.jhsheets.filtered.tablecolumn;
 
+import java.util.List;
+
 import javafx.beans.property.BooleanProperty;
 import javafx.collections.ObservableList;
+
+import org.google.jhsheets.filtered.model.ColumnFilterModel;
 import org.google.jhsheets.filtered.operators.IFilterOperator;
 import org.google.jhsheets.filtered.tablecolumn.editor.IFilterEditor;
 
@@ -45,6 +49,23 @@ public interface IFilterableTableColumn<R extends IFilterOperator<?>,M extends I
      */
     public ObservableList<R> getFilters();
     
+    /**
+     * @return The column's filters as of the last change, which can be read from any thread
+     */
+    public ColumnFilterModel<R> getFilterModel();
+    
+    /**
+     * Apply filters to this column without using the filter menu
+     * 
+     * @param filters The filters to apply; an empty list clears the filter
+     */
+    public void setFilters(List<? extends R> filters);
+    
+    /**
+     * Remove any filters applied to this column
+     */
+    public void clearFilters();
+    
     /**
      * @return Property indicating if this column has filters applied
      */
@@ -25,18 +25,24 @@
  */
 package org.google.jhsheets.filtered.tablecolumn.editor;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
-import javafx.event.EventHandler;
 import javafx.scene.Node;
-import javafx.stage.WindowEvent;
 
+import org.google.jhsheets.filtered.model.ColumnFilterModel;
 import org.google.jhsheets.filtered.operators.IFilterOperator;
 
 /**
  * This base class has default methods used to determine whether or not there
  * are filters applied to the table column this editor belongs to.  It also
- * stores a reference to the {@link FilterMenuPopup} used to display filters.
+ * stores the content displayed in the {@link FilterMenuPopup} when the column's 
+ * filters are changed.
+ * <br/><br/>
+ * The saved filters, and whether they filter the column, are written to a
+ * {@link ColumnFilterModel}, so they can be read without the editor's controls.
  * 
  * @see IFilterEditor
  * 
@@ -45,26 +51,25 @@ import org.google.jhsheets.filtered.operators.IFilterOperator;
 public abstract class AbstractFilterEditor<R extends IFilterOperator<?>>
 implements IFilterEditor<R>
 {
-    private FilterMenuPopup menu;
+    private Node menuContent;
     private SimpleBooleanProperty filtered;
+    private ColumnFilterModel<R> model = new ColumnFilterModel<>();
+    
+    /** The filters as of the last save or clear */
+    private R[] savedFilters;
     
+    /**
+     * @param title The column's title.  The filter menu displays the title of the column it's shown for.
+     */
     public AbstractFilterEditor(String title)
     {
-        menu = new FilterMenuPopup(title);
         filtered = new SimpleBooleanProperty(false);
-        
-        menu.setOnHidden(new EventHandler<WindowEvent>() {
-            @Override
-            public void handle(WindowEvent t) {
-                AbstractFilterEditor.this.cancel();
-            }
-        });
     }
     
     @Override
-    public FilterMenuPopup getFilterMenu()
+    public Node getFilterMenuContent()
     {
-        return menu;
+        return menuContent;
     }
     
     /**
@@ -73,7 +78,20 @@ implements IFilterEditor<R>
      */
     public void setFilterMenuContent(Node node)
     {
-        menu.setContentNode(node);
+        menuContent = node;
+    }
+    
+    @Override
+    public ColumnFilterModel<R> getFilterModel()
+    {
+        return model;
+    }
+    
+    @Override
+    public void setFilterModel(ColumnFilterModel<R> model)
+    {
+        this.model = model;
+        updateModel();
     }
     
     @Override
@@ -88,11 +106,48 @@ implements IFilterEditor<R>
         return filtered.get();
     }
     
+    /**
+     * @return The saved filters.  The same array is returned until different filters are saved,
+     *         so it must not be modified.
+     */
+    @Override
+    public R[] getFilters()
+    {
+        return savedFilters;
+    }
+    
+    /**
+     * Save the filters entered in the editor.
+     * The filters are compared by value, so saving filters equal to the saved ones keeps the saved ones.
+     * 
+     * @param filters The filters entered in the editor
+     * @return If the filters differ from the saved filters
+     */
+    protected boolean saveFilters(R[] filters)
+    {
+        if (Arrays.equals(savedFilters, filters))
+        {
+            return false;
+        }
+        savedFilters = filters;
+        updateModel();
+        return true;
+    }
+    
     /**
      * @param isFiltered If there are any non-default filters applied
      */
     protected void setFiltered(boolean isFiltered)
     {
         filtered.set(isFiltered);
+        updateModel();
+    }
+    
+    /**
+     * Write the saved filters to the model
+     */
+    private void updateModel()
+    {
+        model.setState(savedFilters == null ? Collections.<R>emptyList() : Arrays.asList(savedFilters), filtered.get());
     }
 }
@@ -25,8 +25,8 @@
  */
 package org.google.jhsheets.filtered.tablecolumn.editor;
 
-import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.Toggle;
@@ -42,9 +42,6 @@ import org.google.jhsheets.filtered.operators.BooleanOperator;
 public class BooleanFilterEditor
 extends AbstractFilterEditor<BooleanOperator>
 {
-
-    private BooleanOperator.Type previousType;
-    
     private final ToggleGroup typeGroup = new ToggleGroup();
     
     private final BooleanOperator.Type DEFAULT_TYPE;
@@ -84,28 +81,43 @@ extends AbstractFilterEditor<BooleanOperator>
         box.getChildren().addAll(rbNone, rbTrue, rbFalse);
         
         setFilterMenuContent(box);
+        saveFilters(readFilters());
     }
     
-    @Override
-    public BooleanOperator[] getFilters() throws Exception 
+    /**
+     * @return The filters entered in the editor
+     */
+    private BooleanOperator[] readFilters()
     {
-        final ArrayList<BooleanOperator> retList = new ArrayList<>();
         final BooleanOperator.Type selectedType = (BooleanOperator.Type)typeGroup.getSelectedToggle().getUserData();
-        if (selectedType == BooleanOperator.Type.NONE)
-        {
-            retList.add(new BooleanOperator(selectedType, null) );
-        }
-        else
+        return new BooleanOperator[] { BooleanOperator.valueOf(selectedType) };
+    }
+    
+    @Override
+    public boolean setFilters(List<? extends BooleanOperator> filters) throws Exception
+    {
+        BooleanOperator.Type type = DEFAULT_TYPE;
+        for (BooleanOperator f : filters)
         {
-            retList.add(new BooleanOperator(selectedType, selectedType == BooleanOperator.Type.TRUE));
+            if (f.getType() == BooleanOperator.Type.NONE)
+            {
+                continue;
+            }
+            if (type != DEFAULT_TYPE)
+            {
+                throw new IllegalArgumentException("Only a single boolean filter can be set");
+            }
+            type = f.getType();
         }
-        return retList.toArray(new BooleanOperator[0]);
+        
+        setSelectedToggle(type);
+        return save();
     }
     
     @Override
     public void cancel()
     {
-    	setSelectedToggle(previousType);
+    	setSelectedToggle(getFilters()[0].getType());
     }
 
     @Override
@@ -113,15 +125,14 @@ extends AbstractFilterEditor<BooleanOperator>
     {
         boolean changed = false;
         
-        final BooleanOperator.Type selectedType = (BooleanOperator.Type)typeGroup.getSelectedToggle().getUserData();
-        if (selectedType == DEFAULT_TYPE)
+        final BooleanOperator[] filters = readFilters();
+        if (filters[0].getType() == DEFAULT_TYPE)
         {
             changed = clear();
         }
         else
         {
-            changed = previousType != selectedType;
-            previousType = selectedType;
+            changed = saveFilters(filters);
             setFiltered(true);
         }
         
@@ -133,8 +144,8 @@ extends AbstractFilterEditor<BooleanOperator>
     {
         boolean changed = false;
         
-        previousType = DEFAULT_TYPE;
         setSelectedToggle(DEFAULT_TYPE);
+        saveFilters(readFilters());
         
         if (isFiltered())
         {
@@ -96,6 +96,8 @@ extends AbstractFilterEditor<DateOperator>
                 		|| newVal.equals(DateOperator.Type.AFTER) || newVal.equals(DateOperator.Type.AFTERON));
             }
         });
+        
+        saveFilters(new DateOperator[] { DateOperator.NONE, DateOperator.NONE });
     }
     
     private void parseTypes(DateOperator.Type[] types, List<DateOperator.Type> set1, List<DateOperator.Type> set2)
@@ -115,8 +117,11 @@ extends AbstractFilterEditor<DateOperator>
         }
     }
     
-    @Override
-    public DateOperator[] getFilters() throws Exception 
+    /**
+     * @return The filters entered in the editor
+     * @throws Exception If an entered filter is incomplete, or the range is empty
+     */
+    private DateOperator[] readFilters() throws Exception 
     {
         final DateOperator val1 = picker1.getFilter();
         final DateOperator val2 = picker2.getFilter();
@@ -134,11 +139,46 @@ extends AbstractFilterEditor<DateOperator>
         return new DateOperator[] { val1, val2 };
     }
     
+    @Override
+    public boolean setFilters(List<? extends DateOperator> filters) throws Exception
+    {
+        final List<DateOperator> active = new ArrayList<>(2);
+        for (DateOperator f : filters)
+        {
+            if (f.getType() != DateOperator.Type.NONE)
+            {
+                active.add(f);
+            }
+        }
+        if (active.size() > 2)
+        {
+            throw new IllegalArgumentException("At most two filters can be set");
+        }
+        
+        try
+        {
+            picker1.set(active.isEmpty() ? null : active.get(0));
+            if (active.size() == 2 && picker2.typeBox.isDisable())
+            {
+                throw new IllegalArgumentException("The second filter requires a range in the first filter");
+            }
+            picker2.set(active.size() < 2 ? null : active.get(1));
+            return save();
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // Restore the saved filters
+            cancel();
+            throw ex;
+        }
+    }
+    
     @Override
     public void cancel()
     {
-        picker1.cancel();
-        picker2.cancel();
+        final DateOperator[] filters = getFilters();
+        picker1.set(filters[0]);
+        picker2.set(filters[1]);
     }
 
     @Override
@@ -146,19 +186,15 @@ extends AbstractFilterEditor<DateOperator>
     {
         boolean changed = false;
         
-        final DateOperator do1 = picker1.getFilter();
-        final DateOperator do2 = picker2.getFilter();
-        
-        if (do1.getType() == picker1.DEFAULT_TYPE && do2.getType() == picker2.DEFAULT_TYPE)
+        final DateOperator[] filters = readFilters();
+        if (filters[0].getType() == picker1.DEFAULT_TYPE && filters[1].getType() == picker2.DEFAULT_TYPE)
         {
             changed = clear();
         }
         else
         {
-            final boolean changed1 = picker1.save();
-            final boolean changed2 = picker2.save();
+            changed = saveFilters(filters);
             setFiltered(true);
-            changed = changed1 || changed2;
         }
         
         return changed;
@@ -169,8 +205,9 @@ extends AbstractFilterEditor<DateOperator>
     {
         boolean changed = false;
         
-        picker1.clear();
-        picker2.clear();
+        picker1.set(null);
+        picker2.set(null);
+        saveFilters(new DateOperator[] { DateOperator.NONE, DateOperator.NONE });
         
         if (isFiltered())
         {
@@ -191,9 +228,6 @@ extends AbstractFilterEditor<DateOperator>
         private final Date DEFAULT_DATE = null;
         private final DateOperator.Type DEFAULT_TYPE = DateOperator.Type.NONE;
         
-        private Date previousDate = DEFAULT_DATE;
-        private DateOperator.Type previousType = DEFAULT_TYPE;
-        
         private final GridPane box = new GridPane();
         private final DatePicker datePicker;
         private final ComboBox<DateOperator.Type> typeBox;
@@ -235,30 +269,18 @@ extends AbstractFilterEditor<DateOperator>
             datePicker.setDisable(!enable || typeBox.getSelectionModel().getSelectedItem() == DateOperator.Type.NONE);
         }
         
-        public void cancel()
+        /**
+         * @param filter Filter to display, or null to display the default
+         */
+        public void set(DateOperator filter)
         {
-            datePicker.setSelectedDate(previousDate);
-            typeBox.getSelectionModel().select(previousType);
-        }
-        
-        public void clear()
-        {
-            previousDate = DEFAULT_DATE;
-            previousType = DEFAULT_TYPE;
-
-            datePicker.setSelectedDate(DEFAULT_DATE);
-            typeBox.getSelectionModel().select(DEFAULT_TYPE);
-        }
-        
-        public boolean save()
-        {
-            final boolean changed = previousType != typeBox.getSelectionModel().getSelectedItem()
-                    || (typeBox.getSelectionModel().getSelectedItem() != DateOperator.Type.NONE 
-                        && previousDate.equals(datePicker.getSelectedDate()) == false);
-            
-            previousDate = datePicker.getSelectedDate();
-            previousType = typeBox.getSelectionModel().getSelectedItem();
-            return changed;
+            final boolean none = filter == null || filter.getType() == DateOperator.Type.NONE;
+            if (none == false && typeBox.getItems().contains(filter.getType()) == false)
+            {
+                throw new IllegalArgumentException("Filter type not supported: " + filter.getType());
+            }
+            typeBox.getSelectionModel().select(none ? DEFAULT_TYPE : filter.getType());
+            datePicker.setSelectedDate(none ? DEFAULT_DATE : filter.getValue());
         }
         
         public DateOperator getFilter() throws Exception
@@ -267,14 +289,14 @@ extends AbstractFilterEditor<DateOperator>
             final DateOperator.Type selectedType = typeBox.getSelectionModel().getSelectedItem();
             if (typeBox.isDisable() || selectedType == DateOperator.Type.NONE)
             {
-                return new DateOperator(DateOperator.Type.NONE, DEFAULT_DATE);
+                return DateOperator.NONE;
             }
             else
             {
                 if (date == null) {
                     throw new Exception("Filter text cannot be empty");
                 } else {
-                    return new DateOperator(selectedType, date);
+                    return DateOperator.valueOf(selectedType, date);
                 }
             }
         }
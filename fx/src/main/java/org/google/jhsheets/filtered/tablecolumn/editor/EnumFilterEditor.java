@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2013, jhsheets@gmail.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.google.jhsheets.filtered.tablecolumn.editor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Predicate;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.scene.Node;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.VBox;
+import javafx.util.Callback;
+
+import org.google.jhsheets.filtered.engine.FilterCompiler;
+import org.google.jhsheets.filtered.operators.EnumOperator;
+
+/**
+ * Filters a column by a list of values, which are checked to be matched.
+ * <br/><br/>
+ * The checked values are saved as a single IN {@link EnumOperator}.  When the values are all 
+ * the constants of an enum, and most of them are checked, the unchecked values are saved as 
+ * a NOTIN operator instead, which matches the same rows.
+ * <br/><br/>
+ * The values are kept in a plain list, and which ones are checked in a {@link BitSet}.
+ * The list view only creates check boxes for the rows it displays, and reuses them as it's 
+ * scrolled, so a list of thousands of values costs no more to display than a short one.
+ * Toggling all the values, resetting them, or restoring the saved ones changes the BitSet
+ * in a single operation, and then updates the toggle check box and the displayed check boxes once.
+ *
+ * @author JHS
+ */
+public class EnumFilterEditor<T> 
+extends AbstractFilterEditor<EnumOperator<T>> 
+{
+    private static final String TOGGLE_ALL = "(Toggle All)";
+    
+    private final CheckBox toggleAllChbx = new CheckBox(TOGGLE_ALL);
+    private boolean selectedByDefault;
+    private boolean showToggle;
+    
+    /** The values that can be checked */
+    private final ObservableList<T> values = FXCollections.observableArrayList();
+    /** Indexes of the checked values */
+    private BitSet checked = new BitSet();
+    /** Number of checked values */
+    private int checkedCount;
+    /** Indexes of the values that were checked as of the last save or clear */
+    private BitSet savedChecked = new BitSet();
+    
+    /** If the values are every constant of an enum, so a value that isn't checked must be unchecked */
+    private boolean allEnumConstants;
+    
+    private final ListView<T> list = new ListView<>(values);
+    /** The cells created by the list; only those on screen, as the list reuses them while scrolling */
+    private final Set<ValueCell> cells = Collections.newSetFromMap(new WeakHashMap<ValueCell, Boolean>());
+    
+    public EnumFilterEditor(String title, T[] values)
+    {
+        this(title, values, false);
+    }
+    
+    public EnumFilterEditor(String title, T[] values, boolean selectedByDefault) 
+    {
+        this(title, values, false, false);
+    }
+    
+    public EnumFilterEditor(String title, T[] values, boolean selectedByDefault, boolean showToggle) 
+    {
+        super(title);
+        this.selectedByDefault = selectedByDefault;
+        this.showToggle = showToggle;
+        
+        // Toggle the rest of the values when the toggle check box is clicked
+        toggleAllChbx.setOnAction(new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(ActionEvent t) {
+                toggleAll(toggleAllChbx.isSelected());
+            }
+        });
+        
+        list.setEditable(false);
+        list.setMaxHeight(215);
+        list.setMaxWidth(400);
+        list.setPrefWidth(200);
+        list.setCellFactory(new Callback<ListView<T>, ListCell<T>>() {
+            @Override
+            public ListCell<T> call(ListView<T> param) {
+                final ValueCell cell = new ValueCell();
+                cells.add(cell);
+                return cell;
+            }
+        });
+        // We don't allow edit mode, so we can let escape key events bubble to the popup
+        list.setOnKeyPressed(new EventHandler<KeyEvent>() {
+            @Override
+            public void handle(KeyEvent event) {
+                if (event.getCode() == KeyCode.ESCAPE) {
+                    list.getScene().getWindow().hide();
+                }
+                else if (event.getCode() == KeyCode.SPACE) {
+                    final int index = list.getFocusModel().getFocusedIndex();
+                    if (index >= 0) {
+                        setChecked(index, !checked.get(index));
+                        refreshCells();
+                    }
+                    event.consume();
+                }
+            }
+        });
+        
+        final VBox box = new VBox();
+        box.setSpacing(4);
+        box.getChildren().addAll(toggleAllChbx, list);
+        setFilterMenuContent(box);
+        
+        populateMenuItems(values);
+    }
+    
+    final public void populateMenuItems(T[] values) 
+    {
+        this.values.setAll(values == null ? Collections.<T>emptyList() : Arrays.asList(values));
+        this.allEnumConstants = isAllEnumConstants(values);
+        
+        setAllChecked(selectedByDefault);
+        savedChecked = (BitSet)checked.clone();
+        
+        list.setPrefHeight(25 * Math.max(this.values.size(), 2));
+        showToggleAll(showToggle);
+        saveFilters(readFilters());
+    }
+    
+    /**
+     * @return If the values are all the constants of a single enum, without duplicates
+     */
+    private static boolean isAllEnumConstants(Object[] values)
+    {
+        if (values == null || values.length == 0 || values[0] instanceof Enum == false)
+        {
+            return false;
+        }
+        final Object[] constants = ((Enum<?>)values[0]).getDeclaringClass().getEnumConstants();
+        return constants.length == values.length && new HashSet<Object>(Arrays.asList(values)).containsAll(Arrays.asList(constants));
+    }
+    
+    /**
+     * @return The filters entered in the editor
+     */
+    @SuppressWarnings("unchecked")
+    private EnumOperator<T>[] readFilters()
+    {
+        final List<T> checkedValues = new ArrayList<>();
+        final List<T> uncheckedValues = new ArrayList<>();
+        for (int i=0; i < values.size(); i++)
+        {
+            (checked.get(i) ? checkedValues : uncheckedValues).add(values.get(i));
+        }
+        
+        final EnumOperator<T> filter;
+        if (checkedValues.isEmpty())
+        {
+            filter = EnumOperator.none();
+        }
+        else if (allEnumConstants && checkedValues.size() > uncheckedValues.size())
+        {
+            // Null isn't one of the values, so it mustn't match either
+            uncheckedValues.add(null);
+            filter = EnumOperator.notIn(uncheckedValues);
+        }
+        else
+        {
+            filter = EnumOperator.in(checkedValues);
+        }
+        return (EnumOperator<T>[])new EnumOperator<?>[] { filter };
+    }
+    
+    @Override
+    public boolean setFilters(List<? extends EnumOperator<T>> filters) throws Exception
+    {
+        // Values that must be in the list
+        final Set<Object> required = new HashSet<>();
+        for (EnumOperator<T> f : filters)
+        {
+            if (f.getType() == EnumOperator.Type.EQUALS)
+            {
+                required.add(f.getValue());
+            }
+            else if (f.getType() == EnumOperator.Type.IN)
+            {
+                required.addAll(f.getValues());
+                if (f.matchesNull())
+                {
+                    required.add(null);
+                }
+            }
+        }
+        
+        final Predicate<Object> p = FilterCompiler.compileValuePredicate(filters);
+        final BitSet matched = new BitSet(values.size());
+        int found = 0;
+        for (int i=0; i < values.size(); i++)
+        {
+            final T value = values.get(i);
+            if (p != null && p.test(value)) matched.set(i);
+            if (required.contains(value)) found++;
+        }
+        setChecked(matched);
+        if (found != required.size())
+        {
+            cancel();
+            throw new IllegalArgumentException("Filter values not in the list of values: " + required);
+        }
+        return save();
+    }
+    
+    @Override
+    public void cancel()
+    {
+        setChecked(savedChecked);
+    }
+
+    @Override
+    public boolean save() throws Exception 
+    {
+        boolean changed = false;
+        
+        // Determine if there are any changes
+        final int defaultCount = selectedByDefault ? values.size() : 0;
+        if (checkedCount == defaultCount)
+        {
+            changed = clear();
+        }
+        else
+        {
+            changed = saveFilters(readFilters());
+            savedChecked = (BitSet)checked.clone();
+            setFiltered(true);
+        }
+        
+        return changed;
+    }
+
+    @Override
+    public boolean clear() throws Exception 
+    {
+        boolean changed = false;
+        
+        setAllChecked(selectedByDefault);
+        savedChecked = (BitSet)checked.clone();
+        saveFilters(readFilters());
+                
+        if (isFiltered())
+        {
+            setFiltered(false);
+            changed = true;
+        }
+        
+        return changed;
+    }
+    
+    public void selectedByDefault(final boolean selected)
+    {
+        selectedByDefault = selected;
+    }
+    
+    public void toggleAll(final boolean selected)
+    {
+        setAllChecked(selected);
+    }
+    
+    public void showToggleAll(final boolean showToggle)
+    {
+        this.showToggle = showToggle;
+        final boolean show = showToggle && values.isEmpty() == false;
+        toggleAllChbx.setVisible(show);
+        toggleAllChbx.setManaged(show);
+    }
+    
+    /**
+     * Check or uncheck a value, and update the toggle check box to match
+     */
+    private void setChecked(int index, boolean value)
+    {
+        if (checked.get(index) == value)
+        {
+            return;
+        }
+        checked.set(index, value);
+        checkedCount += value ? 1 : -1;
+        updateToggleAll();
+    }
+    
+    /**
+     * Check or uncheck all the values at once
+     */
+    private void setAllChecked(boolean value)
+    {
+        checked.clear();
+        if (value)
+        {
+            checked.set(0, values.size());
+        }
+        checkedCount = value ? values.size() : 0;
+        updateToggleAll();
+        refreshCells();
+    }
+    
+    /**
+     * Check the values whose indexes are set, and uncheck the others, at once
+     */
+    private void setChecked(BitSet indexes)
+    {
+        checked = (BitSet)indexes.clone();
+        checkedCount = checked.cardinality();
+        updateToggleAll();
+        refreshCells();
+    }
+    
+    /**
+     * Check the toggle check box if all values are checked, uncheck it if none are,
+     * and otherwise make it indeterminate
+     */
+    private void updateToggleAll()
+    {
+        final int itemsSel = checkedCount;
+        if (itemsSel == 0) {
+            toggleAllChbx.setSelected(false);
+            toggleAllChbx.setIndeterminate(false);
+        }
+        else if (itemsSel == values.size()) {
+            toggleAllChbx.setSelected(true);
+            toggleAllChbx.setIndeterminate(false);
+        }
+        else {
+            toggleAllChbx.setIndeterminate(true);
+        }
+    }
+    
+    /**
+     * Update the check boxes on screen after values were checked or unchecked
+     */
+    private void refreshCells()
+    {
+        for (ValueCell cell : cells)
+        {
+            cell.refresh();
+        }
+    }
+    
+    /**
+     * @return If the node is the ancestor, or one of its children
+     */
+    private static boolean isWithin(Object target, Node ancestor)
+    {
+        for (Node n = target instanceof Node ? (Node)target : null; n != null; n = n.getParent())
+        {
+            if (n == ancestor) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Displays a value with a check box, which is checked if the value's index is in {@link #checked}.
+     * The list reuses a cell for any number of values as it scrolls.
+     */
+    private final class ValueCell extends ListCell<T>
+    {
+        private final CheckBox checkBox = new CheckBox();
+        
+        ValueCell()
+        {
+            // Keep the focus on the list, which handles the keys
+            checkBox.setFocusTraversable(false);
+            checkBox.setOnAction(new EventHandler<ActionEvent>() {
+                @Override
+                public void handle(ActionEvent t) {
+                    if (getIndex() >= 0 && getIndex() < values.size()) {
+                        setChecked(getIndex(), checkBox.isSelected());
+                    }
+                }
+            });
+            // Checkbox doesn't fill the entire cell. Change selection on clicks outside the checkbox
+            setOnMouseClicked(new EventHandler<MouseEvent>() {
+                @Override
+                public void handle(MouseEvent event) {
+                    if (isEmpty() == false && isWithin(event.getTarget(), checkBox) == false) {
+                        setChecked(getIndex(), !checked.get(getIndex()));
+                        refresh();
+                    }
+                }
+            });
+        }
+        
+        @Override
+        protected void updateItem(T item, boolean empty)
+        {
+            super.updateItem(item, empty);
+            setText(null);
+            if (empty)
+            {
+                setGraphic(null);
+            }
+            else
+            {
+                checkBox.setText(String.valueOf(item));
+                setGraphic(checkBox);
+                refresh();
+            }
+        }
+        
+        void refresh()
+        {
+            if (isEmpty() == false && getIndex() >= 0)
+            {
+                checkBox.setSelected(checked.get(getIndex()));
+            }
+        }
+    }
+}
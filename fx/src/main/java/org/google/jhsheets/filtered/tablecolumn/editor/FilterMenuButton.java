@@ -38,6 +38,7 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Control;
 import javafx.scene.control.PopupControl;
 import javafx.stage.Window;
+import javafx.util.Callback;
 
 /**
  * A button that controls displaying the filter menu when clicked
@@ -55,6 +56,20 @@ extends Button
 	private final SimpleBooleanProperty active = new SimpleBooleanProperty();
 	
 	public FilterMenuButton(final FilterMenuPopup popup)
+	{
+		this(new Callback<FilterMenuButton, FilterMenuPopup>() {
+			@Override
+			public FilterMenuPopup call(FilterMenuButton button) {
+				return popup;
+			}
+		});
+	}
+	
+	/**
+	 * @param popupFactory Called each time the button is clicked, for the popup to toggle.
+	 *                     Lets the popup be created when it's first needed.
+	 */
+	public FilterMenuButton(final Callback<FilterMenuButton, FilterMenuPopup> popupFactory)
 	{
 		getStyleClass().add("filter-menu-button");
 		
@@ -74,6 +89,7 @@ extends Button
 		setOnAction(new EventHandler<ActionEvent>() {
 			@Override
 			public void handle(ActionEvent event) {
+				final FilterMenuPopup popup = popupFactory.call(FilterMenuButton.this);
 				if (popup.isShowing())
 				{
 					popup.hide();
@@ -38,6 +38,7 @@ import javafx.scene.control.Label;
 import javafx.scene.control.PopupControl;
 import javafx.scene.control.Separator;
 import javafx.scene.control.Skin;
+import javafx.scene.control.TableView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
@@ -53,6 +54,9 @@ import com.sun.javafx.css.StyleManager;
  * A menu for displaying column filter settings.
  * There is a {@link #saveButton}, {@link #cancelButton} and {@link #resetButton}.
  * Only one instance of this popup will be visible at one time.
+ * <br/><br/>
+ * The columns of a table share a single menu (see {@link #getSharedMenu(TableView)}), 
+ * which displays the content of the clicked column's filter editor.
  * @author jhs
  *
  */
@@ -124,6 +128,21 @@ extends PopupControl
     	setSkin(new FilterMenuPopupSkin2());
     }
     
+    /**
+     * @param table The table whose columns are filtered
+     * @return The menu shared by the table's columns, which is created the first time it's needed
+     */
+    public static FilterMenuPopup getSharedMenu(TableView<?> table)
+    {
+        FilterMenuPopup menu = (FilterMenuPopup)table.getProperties().get(FilterMenuPopup.class);
+        if (menu == null)
+        {
+            menu = new FilterMenuPopup("");
+            table.getProperties().put(FilterMenuPopup.class, menu);
+        }
+        return menu;
+    }
+    
     public ObjectProperty<Node> contentNodeProperty() 
     {
         return contentNode;
@@ -304,7 +323,9 @@ extends PopupControl
             	FilterMenuPopup.this.contentNodeProperty().addListener(new ChangeListener<Node>() {
             		@Override
             		public void changed(ObservableValue<? extends Node> paramObservableValue,Node paramT1, Node paramT2) {
-            			paramT2.getStyleClass().add("center");
+            			// The content of a shared menu can be displayed again
+            			if (paramT2 != null && paramT2.getStyleClass().contains("center") == false)
+            				paramT2.getStyleClass().add("center");
             			setCenter(paramT2);
             		}
 				});
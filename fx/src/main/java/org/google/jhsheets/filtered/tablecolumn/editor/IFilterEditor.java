@@ -25,7 +25,12 @@
  */
 package org.google.jhsheets.filtered.tablecolumn.editor;
 
+import java.util.List;
+
 import javafx.beans.property.BooleanProperty;
+import javafx.scene.Node;
+
+import org.google.jhsheets.filtered.model.ColumnFilterModel;
 import org.google.jhsheets.filtered.operators.IFilterOperator;
 
 /**
@@ -35,11 +40,21 @@ import org.google.jhsheets.filtered.operators.IFilterOperator;
 public interface IFilterEditor<R extends IFilterOperator<?>>
 {
     /**
-     * @return The user entered filters
+     * @return The filters as of the last save or clear
      * @throws Exception 
      */
     abstract public R[] getFilters() throws Exception;
     
+    /**
+     * Set the editor to the filters and save them, as if they were entered in the filter menu.
+     * NONE filters are ignored, so an empty list clears the filter.
+     * @param filters The filters to apply
+     * @return If the saved filters changed
+     * @throws IllegalArgumentException If the editor can't represent the filters
+     * @throws Exception 
+     */
+    abstract public boolean setFilters(List<? extends R> filters) throws Exception;
+    
     /**
      * Cancel filter editing
      */
@@ -61,9 +76,20 @@ public interface IFilterEditor<R extends IFilterOperator<?>>
     abstract public boolean clear() throws Exception;
     
     /**
-     * @return The menu used to change the filter
+     * @return The controls used to change the filter, which are displayed in the table's {@link FilterMenuPopup}
+     */
+    abstract public Node getFilterMenuContent();
+    
+    /**
+     * @return The model the saved filters are written to
+     */
+    abstract public ColumnFilterModel<R> getFilterModel();
+    
+    /**
+     * Write the saved filters to the model from now on, starting with the current ones
+     * @param model The column's filter model
      */
-    abstract public FilterMenuPopup getFilterMenu();
+    abstract public void setFilterModel(ColumnFilterModel<R> model);
     
     /**
      * @return Property identifying if there is a filter set
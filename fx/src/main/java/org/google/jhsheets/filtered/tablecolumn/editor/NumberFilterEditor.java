@@ -87,6 +87,8 @@ extends AbstractFilterEditor<NumberOperator<T>>
                 		|| newVal.equals(NumberOperator.Type.LESSTHAN) || newVal.equals(NumberOperator.Type.LESSTHANEQUALS));
             }
         });
+        
+        saveFilters(newFilters(NumberOperator.<T>none(), NumberOperator.<T>none()));
     }
     
     private void parseTypes(NumberOperator.Type[] types, List<NumberOperator.Type> set1, List<NumberOperator.Type> set2)
@@ -106,23 +108,66 @@ extends AbstractFilterEditor<NumberOperator<T>>
         }
     }
     
-    @SuppressWarnings("unchecked")
-	@Override
-    public NumberOperator<T>[] getFilters() throws Exception 
+    /**
+     * @return The filters entered in the editor
+     * @throws Exception If an entered filter is incomplete, or not a number
+     */
+    private NumberOperator<T>[] readFilters() throws Exception 
     {
         final NumberOperator<T> val1 = picker1.getFilter();
         final NumberOperator<T> val2 = picker2.getFilter();
         
         // TODO: if the Types are ranges, we should probably check that they're within the proper bounds.  Need a separate check for each <T> though
         
-        return new NumberOperator[] { val1, val2 };
+        return newFilters(val1, val2);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private NumberOperator<T>[] newFilters(NumberOperator<T> val1, NumberOperator<T> val2)
+    {
+        return (NumberOperator<T>[])new NumberOperator<?>[] { val1, val2 };
+    }
+    
+    @Override
+    public boolean setFilters(List<? extends NumberOperator<T>> filters) throws Exception
+    {
+        final List<NumberOperator<T>> active = new ArrayList<>(2);
+        for (NumberOperator<T> f : filters)
+        {
+            if (f.getType() != NumberOperator.Type.NONE)
+            {
+                active.add(f);
+            }
+        }
+        if (active.size() > 2)
+        {
+            throw new IllegalArgumentException("At most two filters can be set");
+        }
+        
+        try
+        {
+            picker1.set(active.isEmpty() ? null : active.get(0));
+            if (active.size() == 2 && picker2.typeBox.isDisable())
+            {
+                throw new IllegalArgumentException("The second filter requires a range in the first filter");
+            }
+            picker2.set(active.size() < 2 ? null : active.get(1));
+            return save();
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // Restore the saved filters
+            cancel();
+            throw ex;
+        }
     }
     
     @Override
     public void cancel()
     {
-        picker1.cancel();
-        picker2.cancel();
+        final NumberOperator<T>[] filters = getFilters();
+        picker1.set(filters[0]);
+        picker2.set(filters[1]);
     }
 
     @Override
@@ -130,19 +175,15 @@ extends AbstractFilterEditor<NumberOperator<T>>
     {
         boolean changed = false;
         
-        final NumberOperator<T> do1 = picker1.getFilter();
-        final NumberOperator<T> do2 = picker2.getFilter();
-        
-        if (do1.getType() == picker1.DEFAULT_TYPE && do2.getType() == picker2.DEFAULT_TYPE)
+        final NumberOperator<T>[] filters = readFilters();
+        if (filters[0].getType() == picker1.DEFAULT_TYPE && filters[1].getType() == picker2.DEFAULT_TYPE)
         {
             changed = clear();
         }
         else
         {
-            final boolean changed1 = picker1.save();
-            final boolean changed2 = picker2.save();
+            changed = saveFilters(filters);
             setFiltered(true);
-            changed = changed1 || changed2;
         }
         
         return changed;
@@ -153,8 +194,9 @@ extends AbstractFilterEditor<NumberOperator<T>>
     {
         boolean changed = false;
         
-        picker1.clear();
-        picker2.clear();
+        picker1.set(null);
+        picker2.set(null);
+        saveFilters(newFilters(NumberOperator.<T>none(), NumberOperator.<T>none()));
         
         if (isFiltered())
         {
@@ -175,9 +217,6 @@ extends AbstractFilterEditor<NumberOperator<T>>
         private final String DEFAULT_TEXT = "";
         private final NumberOperator.Type DEFAULT_TYPE = NumberOperator.Type.NONE;
         
-        private String previousText = DEFAULT_TEXT;
-        private NumberOperator.Type previousType = DEFAULT_TYPE;
-        
         final GridPane box = new GridPane();
         private final TextField textField;
         private final ComboBox<NumberOperator.Type> typeBox;
@@ -217,34 +256,21 @@ extends AbstractFilterEditor<NumberOperator<T>>
             textField.setDisable(!enable || typeBox.getSelectionModel().getSelectedItem() == NumberOperator.Type.NONE);
         }
         
-        public void cancel()
-        {
-            textField.setText(previousText);
-            typeBox.getSelectionModel().select(previousType);
-        }
-        
-        public void clear()
+        /**
+         * @param filter Filter to display, or null to display the default
+         */
+        public void set(NumberOperator<T> filter)
         {
-            previousText = DEFAULT_TEXT;
-            previousType = DEFAULT_TYPE;
-
-            textField.setText(DEFAULT_TEXT);
-            typeBox.getSelectionModel().select(DEFAULT_TYPE);
-        }
-        
-        public boolean save()
-        {
-            final boolean changed = previousType != typeBox.getSelectionModel().getSelectedItem()
-                    || (typeBox.getSelectionModel().getSelectedItem() != NumberOperator.Type.NONE 
-                        && previousText.equals(textField.getText()) == false);
-            
-            previousText = textField.getText();
-            previousType = typeBox.getSelectionModel().getSelectedItem();
-            
-            return changed;
+            final boolean none = filter == null || filter.getType() == NumberOperator.Type.NONE;
+            if (none == false && typeBox.getItems().contains(filter.getType()) == false)
+            {
+                throw new IllegalArgumentException("Filter type not supported: " + filter.getType());
+            }
+            typeBox.getSelectionModel().select(none ? DEFAULT_TYPE : filter.getType());
+            textField.setText(none ? DEFAULT_TEXT : String.valueOf(filter.getValue()));
         }
         
-        @SuppressWarnings({ "rawtypes", "unchecked" })
+        @SuppressWarnings("unchecked")
 		public NumberOperator<T> getFilter() throws Exception
         {
             final String text = textField.getText();
@@ -252,7 +278,7 @@ extends AbstractFilterEditor<NumberOperator<T>>
             
             if (typeBox.isDisable() || selectedType == NumberOperator.Type.NONE)
             {
-                return new NumberOperator(NumberOperator.Type.NONE, 0);
+                return NumberOperator.none();
             }
             else
             {
@@ -296,7 +322,7 @@ extends AbstractFilterEditor<NumberOperator<T>>
                         number = Double.parseDouble(text);
                     }
                     
-                    return new NumberOperator(selectedType, number);
+                    return new NumberOperator<>(selectedType, (T)number);
                 }
             }
         }
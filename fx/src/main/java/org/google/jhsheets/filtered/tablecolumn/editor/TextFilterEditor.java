@@ -25,8 +25,8 @@
  */
 package org.google.jhsheets.filtered.tablecolumn.editor;
 
-import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -45,9 +45,6 @@ import org.google.jhsheets.filtered.operators.StringOperator;
 public class TextFilterEditor 
 extends AbstractFilterEditor<StringOperator>
 {
-    private String previousText;
-    private StringOperator.Type previousType;
-    
     private final TextField textField;
     private final ComboBox<StringOperator.Type> typeBox;
     
@@ -88,9 +85,6 @@ extends AbstractFilterEditor<StringOperator>
         
         setFilterMenuContent(box);
         
-        previousText = DEFAULT_TEXT;
-        previousType = DEFAULT_TYPE;
-        
         typeBox.getSelectionModel().select(DEFAULT_TYPE);
         typeBox.setMaxWidth(Double.MAX_VALUE);
         typeBox.getItems().addAll(types);
@@ -102,35 +96,72 @@ extends AbstractFilterEditor<StringOperator>
         });
         
         textField.setDisable(true);
+        saveFilters(new StringOperator[] { StringOperator.NONE });
     }
     
-    @Override
-    public StringOperator[] getFilters() throws Exception 
+    /**
+     * @return The filters entered in the editor
+     * @throws Exception If the entered filter is incomplete
+     */
+    private StringOperator[] readFilters() throws Exception 
     {
-        final ArrayList<StringOperator> retList = new ArrayList<>();
-        
         final String text = textField.getText();
         final StringOperator.Type selectedType = typeBox.getSelectionModel().getSelectedItem();
-        if (selectedType == StringOperator.Type.NONE)
+        if (selectedType != StringOperator.Type.NONE && text.isEmpty())
         {
-            retList.add( new StringOperator(selectedType, "") );
+            throw new Exception("Filter text cannot be empty");
         }
-        else
+        return new StringOperator[] { StringOperator.valueOf(selectedType, text) };
+    }
+    
+    /**
+     * @param filter Filter to display, or null to display the default
+     */
+    private void display(StringOperator filter)
+    {
+        final boolean none = filter == null || filter.getType() == StringOperator.Type.NONE;
+        typeBox.getSelectionModel().select(none ? DEFAULT_TYPE : filter.getType());
+        textField.setText(none ? DEFAULT_TEXT : filter.getValue());
+    }
+    
+    @Override
+    public boolean setFilters(List<? extends StringOperator> filters) throws Exception
+    {
+        StringOperator filter = null;
+        for (StringOperator f : filters)
         {
-            if (text.isEmpty()) {
-                throw new Exception("Filter text cannot be empty");
-            } else {
-                retList.add(new StringOperator(selectedType, text));
+            if (f.getType() == StringOperator.Type.NONE)
+            {
+                continue;
+            }
+            if (filter != null)
+            {
+                throw new IllegalArgumentException("Only a single text filter can be set");
+            }
+            if (typeBox.getItems().contains(f.getType()) == false)
+            {
+                throw new IllegalArgumentException("Filter type not supported: " + f.getType());
             }
+            filter = f;
+        }
+        
+        display(filter);
+        try
+        {
+            return save();
+        }
+        catch (Exception ex)
+        {
+            // Restore the saved filters
+            cancel();
+            throw ex;
         }
-        return retList.toArray(new StringOperator[0]);
     }
     
     @Override
     public void cancel()
     {
-        textField.setText(previousText);
-        typeBox.getSelectionModel().select(previousType);
+        display(getFilters()[0]);
     }
 
     @Override
@@ -138,21 +169,15 @@ extends AbstractFilterEditor<StringOperator>
     {
         boolean changed = false;
         
-        final StringOperator.Type selectedType = typeBox.getSelectionModel().getSelectedItem();
-        if (selectedType == DEFAULT_TYPE)
+        final StringOperator[] filters = readFilters();
+        if (filters[0].getType() == DEFAULT_TYPE)
         {
             changed = clear();
         }
         else
         {
-            changed = previousType != typeBox.getSelectionModel().getSelectedItem()
-                    || (typeBox.getSelectionModel().getSelectedItem() != StringOperator.Type.NONE 
-                        && previousText.equals(textField.getText()) == false);
-            
-            previousText = textField.getText();
-            previousType = typeBox.getSelectionModel().getSelectedItem();
+            changed = saveFilters(filters);
             setFiltered(true);
-            //changed = true;
         }
         
         return changed;
@@ -163,11 +188,8 @@ extends AbstractFilterEditor<StringOperator>
     {
         boolean changed = false;
         
-        previousText = DEFAULT_TEXT;
-        previousType = DEFAULT_TYPE;
-        
-        textField.setText(DEFAULT_TEXT);
-        typeBox.getSelectionModel().select(DEFAULT_TYPE);
+        display(null);
+        saveFilters(new StringOperator[] { StringOperator.NONE });
         
         if (isFiltered())
         {
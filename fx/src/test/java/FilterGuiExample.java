@@ -1,7 +1,7 @@
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.ToIntFunction;
 import javafx.application.Application;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
@@ -18,7 +18,6 @@ import javafx.util.Callback;
 
 import org.google.jhsheets.filtered.FilteredTableView;
 import org.google.jhsheets.filtered.operators.IFilterOperator;
-import org.google.jhsheets.filtered.operators.NumberOperator;
 import org.google.jhsheets.filtered.tablecolumn.ColumnFilterEvent;
 import org.google.jhsheets.filtered.tablecolumn.FilterableBooleanTableColumn;
 import org.google.jhsheets.filtered.tablecolumn.FilterableDateTableColumn;
@@ -47,18 +46,30 @@ public class FilterGuiExample extends Application {
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public void start(Stage primaryStage) 
     {
-        // The FilteredTableView makes it easier to receive notifications of changes to the column filters
-        filteredTable = new FilteredTableView<>(createItems());
+        // The FilteredTableView makes it easier to receive notifications of changes to the column filters.
+        // By giving it the unfiltered items, it will also filter the data for us.
+        filteredTable = new FilteredTableView<>();
+        filteredTable.setSourceItems(createItems());
         
         // Allow an Integer or Integer range as a filter(s)
         idColumn = new FilterableIntegerTableColumn<>("ID");
         idColumn.setPrefWidth(50);
         idColumn.setCellValueFactory(new PropertyValueFactory("id"));
+        // Optional: fetch the value to filter on directly, instead of through the cell value factory.
+        // Numeric columns accept primitive extractors, so the values are filtered without boxing them
+        idColumn.setIntFilterValueExtractor(new ToIntFunction<ExampleItem>() {
+            @Override
+            public int applyAsInt(ExampleItem item) {
+                return item.getId();
+            }
+        });
         
         // Allow for free-form text input as a filter
         valColumn = new FilterableStringTableColumn<>("Value");
         valColumn.setPrefWidth(90);
         valColumn.setCellValueFactory(new PropertyValueFactory("val"));
+        // Index the values in the background, so CONTAINS filters don't search every row
+        valColumn.setTextIndexEnabled(true);
         
         // Allow a set of array or enum values to be used selected from
         // Don't let the name fool you, you can pass in any type of object you'd like
@@ -111,91 +122,16 @@ public class FilterGuiExample extends Application {
                 {
                     System.out.println("  Type=" + filter.getType() + ", Value=" + filter.getValue() );
                 }
-                
-                applyFilters();
+                System.out.println("Displaying " + filteredTable.getItems().size() + " of " + filteredTable.getSourceItems().size() + " items");
             }
         });
 
         BorderPane pane = new BorderPane(filteredTable);
-        pane.setTop(new Label("Filtering only works on the ID column in this demo."));
+        pane.setTop(new Label("The table applies the column filters to its source items."));
         primaryStage.setScene(new Scene(pane, 600, 200));
         primaryStage.show();  
     }
     
-    public void applyFilters()
-    {
-        // Filter the data...
-        final ObservableList<ExampleItem> newData = createItems();
-        filterIdColumn(newData);
-        filterValColumn(newData);
-        filterTypeCol(newData);
-        filterDateCol(newData);
-        filterBoolCol(newData);
-        // Display the filtered results
-        filteredTable.getItems().setAll(newData);
-    }
-    
-    public void filterIdColumn(ObservableList<ExampleItem> newData)
-    {
-        // Here's an example of how you could filter the ID column
-        final List<ExampleItem> remove = new ArrayList<>();
-        final ObservableList<NumberOperator<Integer>> filters = idColumn.getFilters();
-        for (NumberOperator<Integer> filter : filters)
-        {
-            for (ExampleItem item : newData)
-            {
-                // Note: not all Type's are supported for each Operator.
-                // Look at the validTypes() method to see what types are available.
-                if (filter.getType() == NumberOperator.Type.EQUALS)
-                {
-                    if (item.getId() != filter.getValue()) remove.add(item);
-                }
-                else if (filter.getType() == NumberOperator.Type.NOTEQUALS)
-                {
-                    if (item.getId() == filter.getValue()) remove.add(item);
-                }
-                else if (filter.getType() == NumberOperator.Type.GREATERTHAN)
-                {
-                    if (item.getId() <= filter.getValue()) remove.add(item);
-                }
-                else if (filter.getType() == NumberOperator.Type.GREATERTHANEQUALS)
-                {
-                    if (item.getId() < filter.getValue()) remove.add(item);
-                }
-                else if (filter.getType() == NumberOperator.Type.LESSTHAN)
-                {
-                    if (item.getId() >= filter.getValue()) remove.add(item);
-                }
-                else if (filter.getType() == NumberOperator.Type.LESSTHANEQUALS)
-                {
-                    if (item.getId() > filter.getValue()) remove.add(item);
-                }
-            }
-        }
-        
-        newData.removeAll(remove);
-    }
-    
-    public void filterValColumn(ObservableList<ExampleItem> newData)
-    {
-        // ... implement
-    }
-    
-    public void filterTypeCol(ObservableList<ExampleItem> newData)
-    {
-        // ... implement
-    }
-    
-    public void filterDateCol(ObservableList<ExampleItem> newData)
-    {
-        // ... implement
-    }
-    
-    public void filterBoolCol(ObservableList<ExampleItem> newData)
-    {
-        // ... implement
-    }
-    
     @SuppressWarnings("deprecation")
 	public ObservableList<ExampleItem> createItems()
     {
@@ -0,0 +1,211 @@
+package org.google.jhsheets.filtered;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.ToIntFunction;
+
+import javafx.application.Platform;
+import javafx.beans.Observable;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.embed.swing.JFXPanel;
+import javafx.scene.control.TableColumn;
+import javafx.util.Callback;
+
+import org.google.jhsheets.filtered.operators.IFilterOperator;
+import org.google.jhsheets.filtered.operators.NumberOperator;
+import org.google.jhsheets.filtered.tablecolumn.FilterableIntegerTableColumn;
+import org.google.jhsheets.filtered.tablecolumn.FilterableStringTableColumn;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that the table's items stay filtered and sorted as the source items change
+ *
+ * @author JHS
+ */
+public class FilteredTableViewTest
+{
+    private static final int MIN_VALUE = 50;
+
+    private static int nextName;
+
+    @BeforeClass
+    public static void startToolkit()
+    {
+        new JFXPanel();
+    }
+
+    @Test
+    public void sortedTableFollowsSourceChanges() throws Throwable
+    {
+        runOnFxThread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                checkSourceChanges();
+            }
+        });
+    }
+
+    private static void checkSourceChanges()
+    {
+        final Random random = new Random(1);
+        final ObservableList<Row> source = FXCollections.observableArrayList(new Callback<Row, Observable[]>()
+        {
+            @Override
+            public Observable[] call(Row row)
+            {
+                return new Observable[] { row.value };
+            }
+        });
+        for (int i=0; i < 200; i++)
+        {
+            source.add(new Row(random));
+        }
+
+        final FilteredTableView<Row> table = new FilteredTableView<>();
+        final FilterableIntegerTableColumn<Row, Integer> valueColumn = new FilterableIntegerTableColumn<>("Value");
+        valueColumn.setCellValueFactory(new Callback<TableColumn.CellDataFeatures<Row, Integer>, ObservableValue<Integer>>()
+        {
+            @Override
+            public ObservableValue<Integer> call(TableColumn.CellDataFeatures<Row, Integer> features)
+            {
+                return features.getValue().value.asObject();
+            }
+        });
+        valueColumn.setIntFilterValueExtractor(new ToIntFunction<Row>()
+        {
+            @Override
+            public int applyAsInt(Row row)
+            {
+                return row.value.get();
+            }
+        });
+        final FilterableStringTableColumn<Row, String> nameColumn = new FilterableStringTableColumn<>("Name");
+        nameColumn.setCellValueFactory(new Callback<TableColumn.CellDataFeatures<Row, String>, ObservableValue<String>>()
+        {
+            @Override
+            public ObservableValue<String> call(TableColumn.CellDataFeatures<Row, String> features)
+            {
+                return new ReadOnlyObjectWrapper<>(features.getValue().name);
+            }
+        });
+        table.getColumns().setAll(Arrays.<TableColumn<Row, ?>>asList(valueColumn, nameColumn));
+        table.setSourceItems(source);
+
+        valueColumn.setFilters(Collections.singletonList(new NumberOperator<>(IFilterOperator.Type.GREATERTHAN, MIN_VALUE)));
+        nameColumn.setSortType(TableColumn.SortType.DESCENDING);
+        table.getSortOrder().add(nameColumn);
+        assertEquals(expected(source), table.getItems());
+
+        for (int i=0; i < 500; i++)
+        {
+            final int from = random.nextInt(source.size());
+            final int count = Math.min(1 + random.nextInt(5), source.size() - from);
+            switch (random.nextInt(4))
+            {
+                case 0:
+                {
+                    final List<Row> added = new ArrayList<>();
+                    for (int j=0; j < count; j++)
+                    {
+                        added.add(new Row(random));
+                    }
+                    source.addAll(from, added);
+                    break;
+                }
+                case 1:
+                    source.remove(from, from + count);
+                    break;
+                case 2:
+                    source.set(from, new Row(random));
+                    break;
+                default:
+                    source.get(from).value.set(random.nextInt(100));
+                    break;
+            }
+            assertEquals("After change " + i, expected(source), table.getItems());
+        }
+    }
+
+    /**
+     * @return The source rows matching the filter, sorted by name in descending order
+     */
+    private static List<Row> expected(List<Row> source)
+    {
+        final List<Row> ret = new ArrayList<>();
+        for (Row row : source)
+        {
+            if (row.value.get() > MIN_VALUE) ret.add(row);
+        }
+        Collections.sort(ret, new Comparator<Row>()
+        {
+            @Override
+            public int compare(Row a, Row b)
+            {
+                return b.name.compareTo(a.name);
+            }
+        });
+        return ret;
+    }
+
+    private static void runOnFxThread(final Runnable test) throws Throwable
+    {
+        final Throwable[] failure = new Throwable[1];
+        final CountDownLatch done = new CountDownLatch(1);
+        Platform.runLater(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    test.run();
+                }
+                catch (Throwable t)
+                {
+                    failure[0] = t;
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            }
+        });
+        done.await();
+        if (failure[0] != null)
+        {
+            throw failure[0];
+        }
+    }
+
+    private static final class Row
+    {
+        final String name = String.format("row%05d", nextName++);
+        final IntegerProperty value;
+
+        Row(Random random)
+        {
+            value = new SimpleIntegerProperty(random.nextInt(100));
+        }
+
+        @Override
+        public String toString()
+        {
+            return name + "=" + value.get();
+        }
+    }
+}